@@ -1,5 +1,7 @@
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import services.*;
 import ui.VisualInterface;
@@ -13,6 +15,8 @@ public class Main
      * The main method to run the warehouse logistics system.
      * It sets up the services, inventory, suppliers, and processes orders.
      * It also launches the user interface for interaction.
+     *
+     * @param args pass {@code --auto-replenish} to restock low items automatically
      */
     public static void main(String[] args) {
 
@@ -20,7 +24,8 @@ public class Main
         InventoryService inventoryService = new InventoryService();
         SupplierService supplierService = new SupplierService(inventoryService);
         OrderCreationService orderCreationService = new OrderCreationService(inventoryService, supplierService);
-        OrderService orderService = new OrderService(orderCreationService);
+        DeliveryScheduler scheduler = new TimerWheelDeliveryScheduler();
+        OrderService orderService = new OrderService(orderCreationService, scheduler);
         FinancialService financialService = new FinancialService(orderService);
 
         // --- INVENTORY SETUP ---
@@ -69,6 +74,20 @@ public class Main
             true
         );
 
+        // Restock low items automatically once a minute, only when asked to,
+        // since every sweep places real purchase orders
+        ReplenishmentEngine replenishmentEngine = new ReplenishmentEngine(inventoryService, supplierService, orderService, scheduler);
+        if (Arrays.asList(args).contains("--auto-replenish")) {
+            replenishmentEngine.start(1, TimeUnit.MINUTES);
+            System.out.println("Automatic replenishment is on.");
+        }
+
+        // The UI ends the program with System.exit, so release the background threads in a hook
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            replenishmentEngine.shutdown();
+            orderService.shutdown();
+        }, "warehouse-shutdown"));
+
         // Launch UI with services injected
         VisualInterface ui = new VisualInterface(supplierService, inventoryService, orderService, financialService);
         ui.run();
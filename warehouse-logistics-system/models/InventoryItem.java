@@ -1,5 +1,7 @@
 package models;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Represents an item in the warehouse inventory, extending the base `Item` class with additional 
  * attributes for unit price and quantity.
@@ -11,29 +13,126 @@ package models;
  * 
  * Provides methods for accessing and modifying the unit price and quantity, as well as a formatted 
  * string representation of the item.
+ * 
+ * The quantity is held in an atomic field so that sales and deliveries running on different 
+ * threads can adjust stock without locking and without losing updates.
  */
 public class InventoryItem extends Item {
-    private int quantity;
+    private final AtomicInteger quantity;
+    private volatile StockListener stockListener; // Notified on every quantity change, may be null
 
     // Constructor where ID is passed from outside
     public InventoryItem(int id, String name, String description, double unitPrice, int quantity) {
         super(id, name, description, unitPrice);
-        this.quantity = quantity;
+        this.quantity = new AtomicInteger(quantity);
     }
 
     // Getter
     public int getQuantity() {
-        return quantity;
+        return quantity.get();
     }
 
     // Setter
     public void setQuantity(int quantity) {
-        this.quantity = quantity;
+        int oldQuantity = this.quantity.getAndSet(quantity);
+        notifyStockListener(oldQuantity, quantity, StockChangeCause.ADJUSTMENT, 0);
+    }
+
+    /**
+     * Atomically removes the given amount from stock if enough is available.
+     * Stock never goes negative: if fewer units are in stock, nothing changes.
+     *
+     * @param amount the number of units to reserve
+     * @return true if the units were reserved, false if there was not enough stock
+     * @throws IllegalArgumentException if amount is negative
+     */
+    public boolean tryReserve(int amount) {
+        return tryReserve(amount, StockChangeCause.SALE, 0);
+    }
+
+    /**
+     * Atomically removes the given amount from stock if enough is available,
+     * recording why and for which order.
+     *
+     * @param amount  the number of units to reserve
+     * @param cause   the reason for the change, passed to the stock listener
+     * @param orderId the order responsible, or 0 if none
+     * @return true if the units were reserved, false if there was not enough stock
+     * @throws IllegalArgumentException if amount is negative
+     */
+    public boolean tryReserve(int amount, StockChangeCause cause, int orderId) {
+        checkAmount(amount);
+        while (true) {
+            int current = quantity.get();
+            if (current < amount) {
+                return false;
+            }
+            if (quantity.compareAndSet(current, current - amount)) {
+                notifyStockListener(current, current - amount, cause, orderId);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Atomically returns previously reserved units to stock.
+     *
+     * @param amount the number of units to release
+     * @throws IllegalArgumentException if amount is negative
+     */
+    public void release(int amount) {
+        addStock(amount, StockChangeCause.RELEASE, 0);
+    }
+
+    /**
+     * Atomically adds units to stock, for example when a delivery arrives.
+     *
+     * @param amount the number of units to add
+     * @throws IllegalArgumentException if amount is negative
+     */
+    public void addStock(int amount) {
+        addStock(amount, StockChangeCause.DELIVERY, 0);
+    }
+
+    /**
+     * Atomically adds units to stock, recording why and for which order.
+     *
+     * @param amount  the number of units to add
+     * @param cause   the reason for the change, passed to the stock listener
+     * @param orderId the order responsible, or 0 if none
+     * @throws IllegalArgumentException if amount is negative
+     */
+    public void addStock(int amount, StockChangeCause cause, int orderId) {
+        checkAmount(amount);
+        int newQuantity = quantity.addAndGet(amount);
+        notifyStockListener(newQuantity - amount, newQuantity, cause, orderId);
+    }
+
+    private static void checkAmount(int amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Stock amount cannot be negative: " + amount);
+        }
+    }
+
+    /**
+     * Sets the listener to notify whenever this item's quantity changes.
+     *
+     * @param stockListener the listener, or null to stop notifications
+     */
+    public void setStockListener(StockListener stockListener) {
+        this.stockListener = stockListener;
+    }
+
+    private void notifyStockListener(int oldQuantity, int newQuantity, StockChangeCause cause, int orderId) {
+        StockListener listener = stockListener;
+        if (listener != null && oldQuantity != newQuantity) {
+            listener.onQuantityChanged(this, oldQuantity, newQuantity, cause, orderId);
+        }
     }
 
     // ToString method to display item details
     @Override
     public String toString() {
-        return super.toString() + " | Stock: " + quantity;
+        return super.toString() + " | Stock: " + quantity.get();
     }
 }
@@ -2,7 +2,8 @@ package models;
 
 import java.time.LocalDate;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -19,9 +20,11 @@ public class Order extends AbstractOrder {
         PROCESSED, IN_TRANSIT, DELIVERED
     }
 
-    private final Map<String, Integer> products; // itemId for sale or supplierId:itemId for purchase
-    private Status status;
+    private final List<OrderLine> lines;
+    private volatile Map<String, Integer> products; // Text-keyed view of lines, built on first use
+    private volatile Status status; // Changed by the delivery scheduler thread
     private final FinancialTransaction transaction;
+    private volatile OrderStatusListener statusListener;
 
     /**
      * Constructs a new Order instance.
@@ -29,28 +32,74 @@ public class Order extends AbstractOrder {
      * @param id           the order ID
      * @param date         the date of the order
      * @param total        the total cost of the order
-     * @param products     a map of product identifiers to quantities
+     * @param lines        the ordered items and quantities
      * @param status       the initial status of the order
      * @param transaction  the financial transaction associated with this order
      */
     public Order(int id, LocalDate date, double total,
-                 Map<String, Integer> products,
+                 List<OrderLine> lines,
                  Status status,
                  FinancialTransaction transaction) {
         super(id, date, total);
-        this.products = Collections.unmodifiableMap(new HashMap<>(products));
+        this.lines = List.copyOf(lines);
         this.status = status;
         this.transaction = transaction;
     }
 
     /**
-     * Returns the ordered items. Keys are product identifiers, values are quantities.
+     * Constructs a new Order instance from text product keys.
+     *
+     * @param id           the order ID
+     * @param date         the date of the order
+     * @param total        the total cost of the order
+     * @param products     a map of product identifiers ("itemId" or "supplierId:itemId") to quantities
+     * @param status       the initial status of the order
+     * @param transaction  the financial transaction associated with this order
+     * @throws IllegalArgumentException if a product identifier is malformed
+     */
+    public Order(int id, LocalDate date, double total,
+                 Map<String, Integer> products,
+                 Status status,
+                 FinancialTransaction transaction) {
+        this(id, date, total, parseLines(products, transaction), status, transaction);
+    }
+
+    private static List<OrderLine> parseLines(Map<String, Integer> products, FinancialTransaction transaction) {
+        List<OrderLine> lines = OrderLine.parseAll(products, transaction.getType() == FinancialTransaction.Type.PURCHASE);
+        if (lines == null) {
+            throw new IllegalArgumentException("Invalid product identifiers: " + products.keySet());
+        }
+        return lines;
+    }
+
+    /**
+     * Returns the order lines.
+     *
+     * @return an unmodifiable list of the ordered items and quantities
+     */
+    public List<OrderLine> getLines() {
+        return lines;
+    }
+
+    /**
+     * Returns the ordered items. Keys are product identifiers ("itemId" for a sale,
+     * "supplierId:itemId" for a purchase), values are quantities.
+     * This is a text view of {@link #getLines()}, kept for callers that use string keys.
      *
      * @return an unmodifiable map of product identifiers to quantities
      */
     @Override
     public Map<String, Integer> getItems() {
-        return products;
+        Map<String, Integer> view = products;
+        if (view == null) {
+            Map<String, Integer> built = new LinkedHashMap<>();
+            for (OrderLine line : lines) {
+                built.merge(line.toKey(), line.getQuantity(), Integer::sum);
+            }
+            view = Collections.unmodifiableMap(built);
+            products = view;
+        }
+        return view;
     }
 
     /**
@@ -64,11 +113,32 @@ public class Order extends AbstractOrder {
 
     /**
      * Sets a new status for the order.
+     * The status listener is notified after the order's lock is released, so a
+     * slow listener never holds up other threads reading or moving this order.
+     * If two threads change the status at once, the listener may see their
+     * transitions out of order; {@link #getStatus()} always has the latest.
      *
      * @param status the new status to assign
      */
     public void setStatus(Status status) {
-        this.status = status;
+        Status oldStatus;
+        synchronized (this) {
+            oldStatus = this.status;
+            this.status = status;
+        }
+        OrderStatusListener listener = statusListener;
+        if (listener != null && oldStatus != status) {
+            listener.onStatusChanged(this, oldStatus, status);
+        }
+    }
+
+    /**
+     * Sets the listener to notify whenever this order's status changes.
+     *
+     * @param statusListener the listener, or null to stop notifications
+     */
+    public void setStatusListener(OrderStatusListener statusListener) {
+        this.statusListener = statusListener;
     }
 
     /**
@@ -0,0 +1,191 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One line of an {@link Order}: an item and the quantity ordered.
+ *
+ * Sale lines refer to an inventory item by ID. Purchase lines refer to an item
+ * offered by a particular supplier, so they also carry the supplier's ID.
+ * The supplier and item IDs are packed into a single long key, so lines can be
+ * compared, hashed and grouped without any string handling.
+ *
+ * Lines are parsed once from the text keys used by the menus ("itemId" for a
+ * sale, "supplierId:itemId" for a purchase); {@link #toKey()} gives the text
+ * form back.
+ */
+public final class OrderLine {
+    /** Supplier ID used for sale lines, which are not tied to a supplier. */
+    public static final int NO_SUPPLIER = 0;
+
+    private final long key;
+    private final int quantity;
+
+    /**
+     * Constructs a sale line for an inventory item.
+     *
+     * @param itemId   the inventory item ID
+     * @param quantity the quantity ordered
+     */
+    public OrderLine(int itemId, int quantity) {
+        this(NO_SUPPLIER, itemId, quantity);
+    }
+
+    /**
+     * Constructs a purchase line for an item offered by a supplier.
+     *
+     * @param supplierId the supplier ID, or {@link #NO_SUPPLIER} for a sale line
+     * @param itemId     the item ID
+     * @param quantity   the quantity ordered
+     */
+    public OrderLine(int supplierId, int itemId, int quantity) {
+        this.key = packKey(supplierId, itemId);
+        this.quantity = quantity;
+    }
+
+    /**
+     * Packs a supplier ID and item ID into one key.
+     *
+     * @param supplierId the supplier ID
+     * @param itemId     the item ID
+     * @return the packed key
+     */
+    public static long packKey(int supplierId, int itemId) {
+        return ((long) supplierId << 32) | (itemId & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Parses a line from its text key without throwing.
+     *
+     * @param key      "itemId" for a sale line or "supplierId:itemId" for a purchase line
+     * @param quantity the quantity ordered
+     * @param purchase true if the key must be a purchase key, false if it must be a sale key
+     * @return the line, or null if the key is not in the expected form
+     */
+    public static OrderLine parse(String key, int quantity, boolean purchase) {
+        if (key == null) return null;
+        int colon = key.indexOf(':');
+        if (purchase) {
+            if (colon < 0) return null;
+            long supplierId = parseId(key, 0, colon);
+            long itemId = parseId(key, colon + 1, key.length());
+            if (supplierId < 0 || itemId < 0) return null;
+            return new OrderLine((int) supplierId, (int) itemId, quantity);
+        }
+        if (colon >= 0) return null;
+        long itemId = parseId(key, 0, key.length());
+        return itemId < 0 ? null : new OrderLine((int) itemId, quantity);
+    }
+
+    /**
+     * Parses every entry of a text-keyed product map.
+     *
+     * @param products map of text keys to quantities
+     * @param purchase true for purchase keys, false for sale keys
+     * @return the lines, or null if any key is malformed or any quantity is missing
+     */
+    public static List<OrderLine> parseAll(Map<String, Integer> products, boolean purchase) {
+        List<OrderLine> lines = new ArrayList<>(products.size());
+        for (Map.Entry<String, Integer> entry : products.entrySet()) {
+            Integer quantity = entry.getValue();
+            OrderLine line = quantity == null ? null : parse(entry.getKey(), quantity, purchase);
+            if (line == null) return null;
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    /**
+     * Parses a decimal ID from part of a string, allowing an optional leading '+'
+     * as Integer.parseInt does.
+     *
+     * @return the ID, or -1 if the text is empty, not a number, or out of int range
+     */
+    private static long parseId(String text, int from, int to) {
+        if (from < to && text.charAt(from) == '+') from++;
+        if (from >= to) return -1;
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+            if (value > Integer.MAX_VALUE) return -1;
+        }
+        return value;
+    }
+
+    /**
+     * Returns the packed (supplier ID, item ID) key.
+     *
+     * @return the key
+     */
+    public long getKey() {
+        return key;
+    }
+
+    /**
+     * Returns the supplier ID, or {@link #NO_SUPPLIER} for a sale line.
+     *
+     * @return the supplier ID
+     */
+    public int getSupplierId() {
+        return (int) (key >>> 32);
+    }
+
+    /**
+     * Returns the item ID: an inventory item ID for a sale line,
+     * or the supplier's item ID for a purchase line.
+     *
+     * @return the item ID
+     */
+    public int getItemId() {
+        return (int) key;
+    }
+
+    /**
+     * Returns the quantity ordered.
+     *
+     * @return the quantity
+     */
+    public int getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * Returns whether this line buys from a supplier.
+     *
+     * @return true for a purchase line, false for a sale line
+     */
+    public boolean isPurchase() {
+        return getSupplierId() != NO_SUPPLIER;
+    }
+
+    /**
+     * Returns the text key for this line: "itemId" or "supplierId:itemId".
+     *
+     * @return the text key
+     */
+    public String toKey() {
+        return isPurchase() ? getSupplierId() + ":" + getItemId() : Integer.toString(getItemId());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof OrderLine)) return false;
+        OrderLine other = (OrderLine) o;
+        return key == other.key && quantity == other.quantity;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(key) * 31 + quantity;
+    }
+
+    @Override
+    public String toString() {
+        return toKey() + "=" + quantity;
+    }
+}
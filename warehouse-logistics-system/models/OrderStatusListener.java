@@ -0,0 +1,23 @@
+package models;
+
+/**
+ * Callback notified whenever the status of an {@link Order} changes.
+ *
+ * Services register a listener on the orders they store so that indexes
+ * keyed by status stay in step with the order, whichever thread moves it
+ * from one status to the next.
+ */
+@FunctionalInterface
+public interface OrderStatusListener {
+
+    /**
+     * Called after the status of an order has changed, on the thread that changed
+     * it and without the order's lock held. Concurrent changes of one order may be
+     * reported out of order.
+     *
+     * @param order     the order whose status changed
+     * @param oldStatus the status before the change
+     * @param newStatus the status after the change
+     */
+    void onStatusChanged(Order order, Order.Status oldStatus, Order.Status newStatus);
+}
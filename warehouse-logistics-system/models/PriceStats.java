@@ -0,0 +1,52 @@
+package models;
+
+/**
+ * The lowest, highest and average of the prices a supplier charged for an item
+ * over a period.
+ */
+public final class PriceStats {
+    private final double min;
+    private final double max;
+    private final double average;
+    private final int count;
+
+    /**
+     * Constructs a summary of a price range.
+     *
+     * @param min     the lowest price
+     * @param max     the highest price
+     * @param average the mean of the prices
+     * @param count   the number of prices summarised
+     */
+    public PriceStats(double min, double max, double average, int count) {
+        this.min = min;
+        this.max = max;
+        this.average = average;
+        this.count = count;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public double getAverage() {
+        return average;
+    }
+
+    /**
+     * Returns the number of prices summarised: the price in effect at the start
+     * of the period plus every change within it.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Min: £%.2f | Avg: £%.2f | Max: £%.2f | Prices: %d", min, average, max, count);
+    }
+}
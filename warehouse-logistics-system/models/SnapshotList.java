@@ -0,0 +1,199 @@
+package models;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * An immutable, versioned list that can be handed to readers without copying.
+ *
+ * Each "modification" returns a new SnapshotList and leaves the original untouched,
+ * so a reader holding a snapshot always sees a stable view even while writers
+ * publish newer versions. Elements are stored in fixed-size chunks that are shared
+ * between versions: appending only writes into free space at the end of the shared
+ * arrays, so it costs amortised O(1) rather than copying the whole list.
+ * Replacing or removing elements copies only what is needed to keep older
+ * snapshots unchanged.
+ *
+ * Writers must publish new versions through a volatile field (or a lock) so that
+ * readers see fully written snapshots.
+ *
+ * @param <T> the element type
+ */
+public final class SnapshotList<T> extends AbstractList<T> implements RandomAccess {
+    private static final int CHUNK_SHIFT = 5;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final Object[][] chunks;    // Shared between versions; only slots below size are ours
+    private final AtomicInteger claimed; // Number of slots in chunks already used by some version
+    private final int size;
+    private final long version;
+
+    private SnapshotList(Object[][] chunks, AtomicInteger claimed, int size, long version) {
+        this.chunks = chunks;
+        this.claimed = claimed;
+        this.size = size;
+        this.version = version;
+    }
+
+    /**
+     * Returns a new empty list at version 0.
+     *
+     * @param <T> the element type
+     * @return the empty snapshot
+     */
+    public static <T> SnapshotList<T> empty() {
+        return new SnapshotList<>(new Object[4][], new AtomicInteger(), 0, 0L);
+    }
+
+    /**
+     * Returns the version of this snapshot. Every modification increases it by one.
+     *
+     * @return the version number
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return (T) chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a new version with the element added at the end.
+     *
+     * If this is the newest version, the element is written into the shared chunks;
+     * otherwise the chunks are copied first so the other version is not affected.
+     *
+     * @param element the element to append
+     * @return the new snapshot
+     */
+    public SnapshotList<T> append(T element) {
+        if (claimed.compareAndSet(size, size + 1)) {
+            Object[][] spine = chunks;
+            int chunk = size >>> CHUNK_SHIFT;
+            if (chunk == spine.length) {
+                spine = Arrays.copyOf(spine, spine.length * 2);
+            }
+            if (spine[chunk] == null) {
+                spine[chunk] = new Object[CHUNK_SIZE];
+            }
+            spine[chunk][size & CHUNK_MASK] = element;
+            return new SnapshotList<>(spine, claimed, size + 1, version + 1);
+        }
+        // A newer version already used the next slot: branch off with private copies
+        return copyOf(this, version).append(element);
+    }
+
+    /**
+     * Returns a new version with the element at the given index replaced.
+     * Only the spine and the chunk holding the element are copied.
+     *
+     * @param index   the index to replace
+     * @param element the new element
+     * @return the new snapshot
+     */
+    public SnapshotList<T> with(int index, T element) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        Object[][] spine = chunks.clone();
+        int chunk = index >>> CHUNK_SHIFT;
+        spine[chunk] = spine[chunk].clone();
+        spine[chunk][index & CHUNK_MASK] = element;
+
+        // Also copy the partly filled last chunk, and drop any chunks past it that a
+        // sibling version may have started, so that appends to the new version can
+        // never write into a chunk another version can see
+        int lastChunk = (size - 1) >>> CHUNK_SHIFT;
+        if (lastChunk != chunk && (size & CHUNK_MASK) != 0) {
+            spine[lastChunk] = spine[lastChunk].clone();
+        }
+        Arrays.fill(spine, lastChunk + 1, spine.length, null);
+        return new SnapshotList<>(spine, new AtomicInteger(size), size, version + 1);
+    }
+
+    /**
+     * Returns a new version without the element at the given index. The elements
+     * after it move down one place, so the order is kept. The chunks before the
+     * index stay shared with this version; only the spine and the chunks from the
+     * index onwards are copied.
+     *
+     * @param index the index to remove
+     * @return the new snapshot
+     */
+    public SnapshotList<T> without(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        int last = size - 1;
+        int lastChunk = last >>> CHUNK_SHIFT;
+        Object[][] spine = chunks.clone();
+        for (int chunk = index >>> CHUNK_SHIFT; chunk <= lastChunk; chunk++) {
+            spine[chunk] = spine[chunk].clone();
+        }
+        for (int i = index; i < last; i++) {
+            spine[i >>> CHUNK_SHIFT][i & CHUNK_MASK] = spine[(i + 1) >>> CHUNK_SHIFT][(i + 1) & CHUNK_MASK];
+        }
+        // The freed last slot is where the next append goes; its chunk was copied above
+        spine[lastChunk][last & CHUNK_MASK] = null;
+        Arrays.fill(spine, lastChunk + 1, spine.length, null);
+        return new SnapshotList<>(spine, new AtomicInteger(last), last, version + 1);
+    }
+
+    /**
+     * Returns a new version without the elements matching the filter.
+     * This rebuilds the list into fresh chunks, so it never shares a chunk with
+     * another version; it costs O(n) and is intended for rare removals.
+     *
+     * @param filter the condition for elements to remove
+     * @return the new snapshot, or this snapshot if nothing matched
+     */
+    public SnapshotList<T> without(Predicate<? super T> filter) {
+        SnapshotList<T> result = null;
+        for (int i = 0; i < size; i++) {
+            T element = get(i);
+            if (filter.test(element)) {
+                if (result == null) {
+                    // First removal: keep the elements before it
+                    result = copyOf(subList(0, i), version);
+                }
+            } else if (result != null) {
+                result = result.append(element);
+            }
+        }
+        if (result == null) {
+            return this;
+        }
+        return new SnapshotList<>(result.chunks, result.claimed, result.size, version + 1);
+    }
+
+    /**
+     * Copies elements into fresh, unshared chunks.
+     */
+    private static <T> SnapshotList<T> copyOf(List<T> elements, long version) {
+        int chunkCount = Math.max(4, (elements.size() >>> CHUNK_SHIFT) + 1);
+        Object[][] spine = new Object[chunkCount][];
+        for (int i = 0; i < elements.size(); i++) {
+            if (spine[i >>> CHUNK_SHIFT] == null) {
+                spine[i >>> CHUNK_SHIFT] = new Object[CHUNK_SIZE];
+            }
+            spine[i >>> CHUNK_SHIFT][i & CHUNK_MASK] = elements.get(i);
+        }
+        return new SnapshotList<>(spine, new AtomicInteger(elements.size()), elements.size(), version);
+    }
+}
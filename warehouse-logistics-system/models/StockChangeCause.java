@@ -0,0 +1,11 @@
+package models;
+
+/**
+ * The reason an inventory item's stock quantity changed.
+ */
+public enum StockChangeCause {
+    SALE,       // Units reserved for a sale order
+    DELIVERY,   // Units received from a delivered purchase order
+    RELEASE,    // Previously reserved units returned to stock
+    ADJUSTMENT  // Quantity set directly, e.g. a stock count correction
+}
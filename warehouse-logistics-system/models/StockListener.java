@@ -0,0 +1,23 @@
+package models;
+
+/**
+ * Callback notified whenever the stock quantity of an {@link InventoryItem} changes.
+ *
+ * Services register a listener on the items they own so that derived stock data
+ * (such as stock level tables) stays in step with the item, no matter which
+ * class changed the quantity.
+ */
+@FunctionalInterface
+public interface StockListener {
+
+    /**
+     * Called after the quantity of an item has changed.
+     *
+     * @param item        the item whose quantity changed
+     * @param oldQuantity the quantity before the change
+     * @param newQuantity the quantity after the change
+     * @param cause       why the quantity changed
+     * @param orderId     the order responsible for the change, or 0 if none
+     */
+    void onQuantityChanged(InventoryItem item, int oldQuantity, int newQuantity, StockChangeCause cause, int orderId);
+}
@@ -1,7 +1,9 @@
 package models;
 
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Represents a supplier who provides items and tracks order history.
@@ -9,7 +11,12 @@ import java.util.List;
  * This class holds supplier details such as contact information and location,
  * along with the list of items they supply and their order history.
  * It provides functionality to manage items (add, update, remove) and record orders.
- * Defensive copying is used to protect internal collections from external modification.
+ * Items and order history are held as immutable {@link SnapshotList}s, so they can be
+ * returned to callers without copying and cannot be modified from outside.
+ * Items are also indexed by ID, so looking up or replacing an item takes constant
+ * time however large the catalogue is. Spend totals and units ordered per item
+ * are kept up to date as orders are recorded, so they never need to be
+ * recomputed from the history.
  */
 public class Supplier {
     private int id;
@@ -17,8 +24,12 @@ public class Supplier {
     private String email;
     private String phone;
     private String location;
-    private List<SupplierItem> items;
-    private List<SupplierOrderRecord> orderHistory;
+    private volatile SnapshotList<SupplierItem> items;
+    private final Map<Integer, SupplierItem> itemsById;
+    private final Map<Integer, Integer> itemPositions; // Item ID to index in items; guarded by this
+    private volatile SupplierSpendSummary spendSummary;
+    private final Map<Integer, Long> unitsByItem;       // Total quantity ever ordered, by item ID
+    private volatile SnapshotList<SupplierOrderRecord> orderHistory;
 
     // Constructor
     public Supplier(int id, String name, String email, String phone, String location) {
@@ -27,8 +38,12 @@ public class Supplier {
         this.email = email;
         this.phone = phone;
         this.location = location;
-        this.items = new ArrayList<>();
-        this.orderHistory = new ArrayList<>();
+        this.items = SnapshotList.empty();
+        this.itemsById = new ConcurrentHashMap<>();
+        this.itemPositions = new HashMap<>();
+        this.spendSummary = SupplierSpendSummary.EMPTY;
+        this.unitsByItem = new ConcurrentHashMap<>();
+        this.orderHistory = SnapshotList.empty();
     }
 
     // Getters
@@ -53,20 +68,23 @@ public class Supplier {
     }
 
     public List<SupplierItem> getItems() {
-        return new ArrayList<>(items); // Return copy to avoid external mutation
+        return items; // Immutable snapshot, safe to share
     }
 
     public SupplierItem getItemById(int itemId) {
-        for (SupplierItem item : items) {
-            if (item.getId() == itemId) {
-                return item;
-            }
-        }
-        return null;
+        return itemsById.get(itemId);
     }
 
     public List<SupplierOrderRecord> getOrderHistory() {
-        return new ArrayList<>(orderHistory);
+        return orderHistory;
+    }
+
+    public SupplierSpendSummary getSpendSummary() {
+        return spendSummary;
+    }
+
+    public long getUnitsOrdered(int itemId) {
+        return unitsByItem.getOrDefault(itemId, 0L);
     }
 
     // Setters
@@ -84,25 +102,37 @@ public class Supplier {
     }
 
     // Supplier Item management
-    public void addItem(SupplierItem newItem) {
-        // Check if item with same ID exists, and replace it
-        for (int i = 0; i < items.size(); i++) {
-            SupplierItem existing = items.get(i);
-            if (existing.getId() == newItem.getId()) {
-                items.set(i, newItem);
-                return;
-            }
+    public synchronized void addItem(SupplierItem newItem) {
+        // Replace the item with the same ID if there is one, otherwise append
+        Integer position = itemPositions.get(newItem.getId());
+        if (position != null) {
+            items = items.with(position, newItem);
+        } else {
+            itemPositions.put(newItem.getId(), items.size());
+            items = items.append(newItem);
         }
-        items.add(newItem); // Add new item if no match found
+        itemsById.put(newItem.getId(), newItem);
     }
 
-    public void removeItemById(int itemId) {
-        items.removeIf(item -> item.getId() == itemId);
+    public synchronized void removeItemById(int itemId) {
+        if (itemsById.remove(itemId) == null) return;
+        int position = itemPositions.remove(itemId);
+        items = items.without(position);
+        // Removal shifts the later items down, so renumber them
+        for (int i = position; i < items.size(); i++) {
+            itemPositions.put(items.get(i).getId(), i);
+        }
     }
 
     // Order History management
-    public void addOrderRecord(SupplierOrderRecord record) {
-        orderHistory.add(record);
+    public synchronized void addOrderRecord(SupplierOrderRecord record) {
+        long units = 0;
+        for (Map.Entry<Integer, Integer> item : record.getItems().entrySet()) {
+            unitsByItem.merge(item.getKey(), (long) item.getValue(), Long::sum);
+            units += item.getValue();
+        }
+        spendSummary = spendSummary.plus(record, units);
+        orderHistory = orderHistory.append(record);
     }
 
     // ToString method to display item details
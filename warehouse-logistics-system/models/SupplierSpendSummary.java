@@ -0,0 +1,71 @@
+package models;
+
+import java.time.LocalDate;
+
+/**
+ * Running totals of the orders placed with a supplier.
+ *
+ * A supplier keeps one summary and replaces it each time an order is recorded,
+ * so reading the totals costs O(1) however long the order history grows, and the
+ * figures in one summary always agree with each other.
+ */
+public final class SupplierSpendSummary {
+    public static final SupplierSpendSummary EMPTY = new SupplierSpendSummary(0.0, 0, 0, null);
+
+    private final double totalSpend;
+    private final int orderCount;
+    private final long unitCount;
+    private final LocalDate lastOrderDate;
+
+    private SupplierSpendSummary(double totalSpend, int orderCount, long unitCount, LocalDate lastOrderDate) {
+        this.totalSpend = totalSpend;
+        this.orderCount = orderCount;
+        this.unitCount = unitCount;
+        this.lastOrderDate = lastOrderDate;
+    }
+
+    /**
+     * Returns a new summary that also includes the given order.
+     *
+     * @param record the order being recorded
+     * @param units  the total quantity of items in the order
+     * @return the updated summary
+     */
+    SupplierSpendSummary plus(SupplierOrderRecord record, long units) {
+        LocalDate date = record.getDate();
+        LocalDate last = lastOrderDate == null || date.isAfter(lastOrderDate) ? date : lastOrderDate;
+        return new SupplierSpendSummary(totalSpend + record.getTotal(), orderCount + 1, unitCount + units, last);
+    }
+
+    public double getTotalSpend() {
+        return totalSpend;
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    public long getUnitCount() {
+        return unitCount;
+    }
+
+    /**
+     * Returns the date of the most recent order, or null if there have been none.
+     */
+    public LocalDate getLastOrderDate() {
+        return lastOrderDate;
+    }
+
+    /**
+     * Returns the average spend per order, or 0 if there have been none.
+     */
+    public double getAverageOrderValue() {
+        return orderCount == 0 ? 0.0 : totalSpend / orderCount;
+    }
+
+    @Override
+    public String toString() {
+        return "Orders: " + orderCount + " | Units: " + unitCount + " | Total spend: £"
+            + String.format("%.2f", totalSpend) + " | Last order: " + (lastOrderDate == null ? "never" : lastOrderDate);
+    }
+}
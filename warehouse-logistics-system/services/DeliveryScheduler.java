@@ -0,0 +1,41 @@
+package services;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs delayed tasks for the order delivery lifecycle, such as moving a purchase
+ * order from PROCESSED to IN_TRANSIT after a delay.
+ *
+ * Implementations own whatever threads they use and release them on {@link #shutdown()}.
+ */
+public interface DeliveryScheduler {
+
+    /**
+     * A scheduled task that can still be cancelled.
+     */
+    interface Timeout {
+
+        /**
+         * Cancels the task if it has not run yet.
+         *
+         * @return true if the task was cancelled, false if it already ran or was cancelled
+         */
+        boolean cancel();
+    }
+
+    /**
+     * Schedules a task to run once after a delay.
+     *
+     * @param task  the task to run
+     * @param delay the delay before running it
+     * @param unit  the unit of the delay
+     * @return a handle that can cancel the task
+     * @throws IllegalStateException if the scheduler has been shut down
+     */
+    Timeout schedule(Runnable task, long delay, TimeUnit unit);
+
+    /**
+     * Stops the scheduler. Tasks that have not run yet are discarded.
+     */
+    void shutdown();
+}
@@ -40,7 +40,7 @@ public class FinancialService {
      * @return A list of all purchase transactions.
      */
     public List<PurchaseTransaction> getPurchaseTransactions() {
-        return getTransactionsOfType(PurchaseTransaction.class); // Filters and casts to PurchaseTransaction
+        return getTransactionsOfType(FinancialTransaction.Type.PURCHASE, PurchaseTransaction.class);
     }
 
     /**
@@ -49,21 +49,25 @@ public class FinancialService {
      * @return A list of all sale transactions.
      */
     public List<SaleTransaction> getSaleTransactions() {
-        return getTransactionsOfType(SaleTransaction.class); // Filters and casts to SaleTransaction
+        return getTransactionsOfType(FinancialTransaction.Type.SALE, SaleTransaction.class);
     }
 
     /**
-     * Internal helper method to filter and cast financial transactions by type.
+     * Internal helper method to fetch and cast financial transactions by type.
+     * Uses the order service's type index, so only orders of that type are visited.
      *
-     * @param type The class type to filter by (e.g., PurchaseTransaction.class).
+     * @param type The transaction type to fetch.
+     * @param transactionClass The class to cast to (e.g., PurchaseTransaction.class).
      * @return A list of transactions of the specified type.
      * @param <T> A subclass of FinancialTransaction.
      */
-    private <T extends FinancialTransaction> List<T> getTransactionsOfType(Class<T> type) {
-        return orderService.getAllOrders().stream()
+    private <T extends FinancialTransaction> List<T> getTransactionsOfType(
+        FinancialTransaction.Type type,
+        Class<T> transactionClass
+    ) {
+        return orderService.getOrders(type, null, null, null).stream()
             .map(Order::getTransaction)
-            .filter(type::isInstance)  // Filtering by the specified transaction type
-            .map(type::cast)           // Casting to the specified transaction type
+            .map(transactionClass::cast)
             .collect(Collectors.toList());
     }
 
@@ -1,6 +1,7 @@
 package services;
 
 import models.*;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -61,6 +62,11 @@ public class FinancialServiceTest {
         orderService.createOrder(purchaseProducts2, true); // true = Purchase order
     }
 
+    @AfterEach
+    public void tearDown() {
+        orderService.shutdown(); // Stops the timer wheel thread started by setUp
+    }
+
     @Test
     public void testGetAllTransactions() {
         var transactions = financialService.getAllTransactions();
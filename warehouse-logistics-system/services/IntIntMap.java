@@ -0,0 +1,212 @@
+package services;
+
+/**
+ * An open-addressing hash map from int keys to int values, using a primitive
+ * int array so reads and writes never box or allocate.
+ *
+ * Keys and values are interleaved in one array so a lookup usually touches a
+ * single cache line. Key 0 marks an empty slot, so an entry for key 0 is held
+ * in separate fields. Uses linear probing with backward-shift deletion, which
+ * keeps probe sequences short without needing tombstones.
+ *
+ * The map is not thread-safe. Callers that share one between threads guard it
+ * themselves; see {@link StockLevelTable} for the striped stock table built on it.
+ */
+class IntIntMap {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int EMPTY = 0;
+
+    /**
+     * Callback receiving each entry of the map.
+     */
+    @FunctionalInterface
+    interface EntryVisitor {
+        void visit(int key, int value);
+    }
+
+    private int[] slots; // key at 2i, value at 2i + 1
+    private int mask;    // capacity - 1
+    private int size;
+    private boolean hasZeroKey;
+    private int zeroKeyValue;
+
+    /**
+     * Constructs an empty map.
+     */
+    IntIntMap() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty map sized for the expected number of entries.
+     *
+     * @param expectedSize the number of entries expected
+     */
+    IntIntMap(int expectedSize) {
+        int capacity = INITIAL_CAPACITY;
+        while (capacity * 3 < expectedSize * 4) {
+            capacity *= 2;
+        }
+        slots = new int[capacity * 2];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Inserts or replaces an entry.
+     *
+     * @param key   the key
+     * @param value the value to store
+     */
+    void put(int key, int value) {
+        if (key == EMPTY) {
+            if (!hasZeroKey) size++;
+            hasZeroKey = true;
+            zeroKeyValue = value;
+            return;
+        }
+        if ((size + 1) * 4 > (mask + 1) * 3) {
+            resize((mask + 1) * 2);
+        }
+        int slot = indexOf(key);
+        if (slots[slot] == EMPTY) {
+            slots[slot] = key;
+            size++;
+        }
+        slots[slot + 1] = value;
+    }
+
+    /**
+     * Replaces the value of a key already in the map. Never moves other entries,
+     * so it only touches the key's own slot.
+     *
+     * @param key   the key
+     * @param value the value to store
+     * @return false if the key is not in the map, in which case nothing changes
+     */
+    boolean replace(int key, int value) {
+        if (key == EMPTY) {
+            if (hasZeroKey) zeroKeyValue = value;
+            return hasZeroKey;
+        }
+        int slot = indexOf(key);
+        if (slots[slot] == EMPTY) return false;
+        slots[slot + 1] = value;
+        return true;
+    }
+
+    /**
+     * Returns the value stored for a key.
+     *
+     * @param key          the key
+     * @param defaultValue the value to return if the key is not present
+     * @return the stored value, or {@code defaultValue} if absent
+     */
+    int getOrDefault(int key, int defaultValue) {
+        if (key == EMPTY) {
+            return hasZeroKey ? zeroKeyValue : defaultValue;
+        }
+        int slot = indexOf(key);
+        return slots[slot] != EMPTY ? slots[slot + 1] : defaultValue;
+    }
+
+    /**
+     * Returns whether the map holds a value for the given key.
+     *
+     * @param key the key
+     * @return true if the key is present
+     */
+    boolean containsKey(int key) {
+        return key == EMPTY ? hasZeroKey : slots[indexOf(key)] != EMPTY;
+    }
+
+    /**
+     * Removes a key from the map.
+     *
+     * @param key the key
+     */
+    void remove(int key) {
+        if (key == EMPTY) {
+            if (hasZeroKey) size--;
+            hasZeroKey = false;
+            return;
+        }
+        int slot = indexOf(key);
+        if (slots[slot] == EMPTY) return;
+
+        slots[slot] = EMPTY;
+        size--;
+
+        // Shift later entries of the probe chain back into the freed slot
+        int free = slot >> 1;
+        int next = (free + 1) & mask;
+        while (slots[next << 1] != EMPTY) {
+            int home = hash(slots[next << 1]) & mask;
+            // Move the entry if its home slot is not cyclically between free and next
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                slots[free << 1] = slots[next << 1];
+                slots[(free << 1) + 1] = slots[(next << 1) + 1];
+                slots[next << 1] = EMPTY;
+                free = next;
+            }
+            next = (next + 1) & mask;
+        }
+    }
+
+    /**
+     * Passes every stored (key, value) pair to the visitor.
+     *
+     * @param visitor the callback to receive each entry
+     */
+    void forEach(EntryVisitor visitor) {
+        if (hasZeroKey) {
+            visitor.visit(EMPTY, zeroKeyValue);
+        }
+        for (int i = 0; i < slots.length; i += 2) {
+            if (slots[i] != EMPTY) {
+                visitor.visit(slots[i], slots[i + 1]);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of entries in the map.
+     *
+     * @return the entry count
+     */
+    int size() {
+        return size;
+    }
+
+    // Returns the array index of the key's slot, or of the empty slot where it would go
+    private int indexOf(int key) {
+        int slot = hash(key) & mask;
+        while (slots[slot << 1] != EMPTY && slots[slot << 1] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot << 1;
+    }
+
+    private void resize(int newCapacity) {
+        int[] oldSlots = slots;
+        slots = new int[newCapacity * 2];
+        mask = newCapacity - 1;
+
+        for (int i = 0; i < oldSlots.length; i += 2) {
+            if (oldSlots[i] != EMPTY) {
+                int slot = indexOf(oldSlots[i]);
+                slots[slot] = oldSlots[i];
+                slots[slot + 1] = oldSlots[i + 1];
+            }
+        }
+    }
+
+    // Spreads keys evenly across the table (MurmurHash3 finalizer)
+    private static int hash(int key) {
+        int h = key;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+}
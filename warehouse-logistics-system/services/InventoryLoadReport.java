@@ -0,0 +1,101 @@
+package services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Summary of a bulk inventory load: how many rows were read and loaded,
+ * which rows were rejected and why, and how fast the load ran.
+ */
+public class InventoryLoadReport {
+    /** Only the first rejections are kept in detail; the rest are only counted. */
+    public static final int MAX_REJECTIONS_KEPT = 1000;
+
+    /**
+     * A row that could not be loaded.
+     */
+    public static class RejectedRow {
+        private final long lineNumber;
+        private final String reason;
+
+        public RejectedRow(long lineNumber, String reason) {
+            this.lineNumber = lineNumber;
+            this.reason = reason;
+        }
+
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "Line " + lineNumber + ": " + reason;
+        }
+    }
+
+    private long rowsRead;
+    private long rowsLoaded;
+    private long rowsRejected;
+    private long elapsedNanos;
+    private final List<RejectedRow> rejections = new ArrayList<>();
+
+    void rowRead() {
+        rowsRead++;
+    }
+
+    void rowsLoaded(int count) {
+        rowsLoaded += count;
+    }
+
+    void reject(long lineNumber, String reason) {
+        rowsRejected++;
+        if (rejections.size() < MAX_REJECTIONS_KEPT) {
+            rejections.add(new RejectedRow(lineNumber, reason));
+        }
+    }
+
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    // Getters
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public long getRowsLoaded() {
+        return rowsLoaded;
+    }
+
+    public long getRowsRejected() {
+        return rowsRejected;
+    }
+
+    public List<RejectedRow> getRejections() {
+        return Collections.unmodifiableList(rejections);
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns the load rate in rows read per second.
+     *
+     * @return rows per second, or 0 if no time was recorded
+     */
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rowsRead * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Read %d rows, loaded %d, rejected %d in %.1f ms (%.0f rows/s)",
+            rowsRead, rowsLoaded, rowsRejected, elapsedNanos / 1_000_000.0, getRowsPerSecond());
+    }
+}
@@ -0,0 +1,309 @@
+package services;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import models.InventoryItem;
+
+/**
+ * Streams large inventory catalogues from CSV files into an {@link InventoryService}.
+ *
+ * Each row has the form {@code id,name,description,unitPrice,quantity}, with a
+ * positive ID. Fields may be wrapped in double quotes (with {@code ""} for a literal
+ * quote) so names and descriptions can contain commas and line breaks. A first row
+ * starting with "id" is treated as a header and skipped. Rejected rows are reported
+ * by the line they start on.
+ *
+ * The file is read through a reusable NIO buffer and rows are parsed directly from
+ * the bytes: numbers are parsed in place and only the name and description become
+ * strings, so no per-field substrings are created. Parsed items are added to the
+ * inventory in batches, and malformed or duplicate rows are reported rather than
+ * aborting the load.
+ */
+public class InventoryLoader {
+    public static final int DEFAULT_BATCH_SIZE = 10_000;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int FIELD_COUNT = 5;
+
+    // Where the row scanner is within a row, so a quoted line break does not end it
+    private static final int FIELD_START = 0;
+    private static final int UNQUOTED = 1;
+    private static final int QUOTED = 2;
+    private static final int QUOTE_IN_QUOTED = 3; // A closing quote, or the first half of ""
+
+    private final InventoryService inventoryService;
+    private final int batchSize;
+
+    // Offsets of the current row's fields within the buffer, reused for every row
+    private final int[] fieldStart = new int[FIELD_COUNT];
+    private final int[] fieldEnd = new int[FIELD_COUNT];
+    private final boolean[] fieldQuoted = new boolean[FIELD_COUNT];
+
+    /**
+     * Constructs a loader using the default batch size.
+     *
+     * @param inventoryService the inventory to load items into
+     */
+    public InventoryLoader(InventoryService inventoryService) {
+        this(inventoryService, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructs a loader.
+     *
+     * @param inventoryService the inventory to load items into
+     * @param batchSize        the number of items to add to the inventory at a time
+     */
+    public InventoryLoader(InventoryService inventoryService, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive.");
+        }
+        this.inventoryService = inventoryService;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Loads every row of a CSV file into the inventory.
+     *
+     * @param file the CSV file to read
+     * @return a report of loaded and rejected rows and the load rate
+     * @throws IOException if the file cannot be read
+     */
+    public InventoryLoadReport loadCsv(Path file) throws IOException {
+        InventoryLoadReport report = new InventoryLoadReport();
+        List<InventoryItem> batch = new ArrayList<>(batchSize);
+        List<Long> batchLines = new ArrayList<>(batchSize);
+        long startTime = System.nanoTime();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            long lineNumber = 0;   // Line breaks seen so far
+            long rowLine = 1;      // Line the current row starts on
+            int state = FIELD_START;
+            int scanned = 0;       // Bytes of the unfinished row already scanned
+            boolean endOfFile = false;
+
+            while (!endOfFile) {
+                endOfFile = channel.read(buffer) < 0;
+                buffer.flip();
+                byte[] bytes = buffer.array();
+                int rowStart = buffer.position();
+                int limit = buffer.limit();
+
+                for (int i = rowStart + scanned; i < limit; i++) {
+                    byte b = bytes[i];
+                    if (b == '\n') {
+                        lineNumber++;
+                        if (state == QUOTED) continue; // Line break inside a quoted field
+                        parseRow(bytes, rowStart, i, rowLine, report, batch, batchLines);
+                        rowStart = i + 1;
+                        rowLine = lineNumber + 1;
+                        state = FIELD_START;
+                    } else if (b == '"') {
+                        state = state == FIELD_START || state == QUOTE_IN_QUOTED ? QUOTED
+                            : state == QUOTED ? QUOTE_IN_QUOTED : UNQUOTED;
+                    } else if (state != QUOTED) {
+                        state = b == ',' ? FIELD_START : UNQUOTED;
+                    }
+                }
+                if (endOfFile && rowStart < limit) {
+                    // Last row without a trailing newline
+                    parseRow(bytes, rowStart, limit, rowLine, report, batch, batchLines);
+                    rowStart = limit;
+                }
+                scanned = limit - rowStart;
+
+                // Move the unfinished row to the front, growing the buffer if one row fills it
+                buffer.position(rowStart);
+                if (rowStart == 0 && limit == buffer.capacity()) {
+                    ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                    larger.put(buffer);
+                    buffer = larger;
+                } else {
+                    buffer.compact();
+                }
+            }
+        }
+
+        flush(batch, batchLines, report);
+        report.setElapsedNanos(System.nanoTime() - startTime);
+        return report;
+    }
+
+    /**
+     * Parses one row and adds it to the current batch, or records why it was rejected.
+     */
+    private void parseRow(byte[] bytes, int start, int end, long lineNumber,
+                          InventoryLoadReport report, List<InventoryItem> batch, List<Long> batchLines) {
+        if (end > start && bytes[end - 1] == '\r') end--;
+        if (end == start) return; // Ignore blank lines
+
+        if (lineNumber == 1 && isHeader(bytes, start, end)) return;
+        report.rowRead();
+
+        int fields = splitFields(bytes, start, end);
+        if (fields < 0) {
+            report.reject(lineNumber, "Malformed quoted field");
+            return;
+        }
+        if (fields != FIELD_COUNT) {
+            report.reject(lineNumber, "Expected " + FIELD_COUNT + " fields but found " + fields);
+            return;
+        }
+
+        long id = parseLong(bytes, fieldStart[0], fieldEnd[0]);
+        long quantity = parseLong(bytes, fieldStart[4], fieldEnd[4]);
+        double unitPrice = parseDecimal(bytes, fieldStart[3], fieldEnd[3]);
+        if (id == Long.MIN_VALUE || id > Integer.MAX_VALUE) {
+            report.reject(lineNumber, "Invalid id");
+        } else if (id <= 0) {
+            report.reject(lineNumber, "Id must be positive but was " + id);
+        } else if (quantity == Long.MIN_VALUE || quantity < 0 || quantity > Integer.MAX_VALUE) {
+            report.reject(lineNumber, "Invalid quantity");
+        } else if (Double.isNaN(unitPrice) || unitPrice < 0) {
+            report.reject(lineNumber, "Invalid unit price");
+        } else {
+            batch.add(new InventoryItem((int) id, fieldString(bytes, 1), fieldString(bytes, 2), unitPrice, (int) quantity));
+            batchLines.add(lineNumber);
+            if (batch.size() >= batchSize) {
+                flush(batch, batchLines, report);
+            }
+        }
+    }
+
+    /**
+     * Adds the current batch to the inventory and records duplicates as rejected.
+     */
+    private void flush(List<InventoryItem> batch, List<Long> batchLines, InventoryLoadReport report) {
+        if (batch.isEmpty()) return;
+
+        List<InventoryItem> duplicates = inventoryService.addInventoryItems(batch);
+        report.rowsLoaded(batch.size() - duplicates.size());
+        if (!duplicates.isEmpty()) {
+            int next = 0;
+            for (int i = 0; i < batch.size() && next < duplicates.size(); i++) {
+                if (batch.get(i) == duplicates.get(next)) {
+                    report.reject(batchLines.get(i), "Duplicate id " + batch.get(i).getId());
+                    next++;
+                }
+            }
+        }
+        batch.clear();
+        batchLines.clear();
+    }
+
+    /**
+     * Records the start and end offset of each field, honouring quotes.
+     *
+     * @return the number of fields found, or -1 if a quoted field is malformed
+     */
+    private int splitFields(byte[] bytes, int start, int end) {
+        int field = 0;
+        int i = start;
+        while (true) {
+            if (field == FIELD_COUNT) return FIELD_COUNT + 1; // Too many fields
+
+            boolean quoted = i < end && bytes[i] == '"';
+            fieldQuoted[field] = quoted;
+            if (quoted) {
+                fieldStart[field] = ++i;
+                while (i < end) {
+                    if (bytes[i] == '"') {
+                        if (i + 1 < end && bytes[i + 1] == '"') {
+                            i += 2; // Escaped quote
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                if (i == end) return -1; // No closing quote
+                fieldEnd[field] = i;
+                i++; // Closing quote
+            } else {
+                fieldStart[field] = i;
+                while (i < end && bytes[i] != ',') i++;
+                fieldEnd[field] = i;
+            }
+            field++;
+
+            if (i >= end) return field;
+            if (bytes[i] != ',') return -1; // Text after a closing quote
+            i++;
+        }
+    }
+
+    private String fieldString(byte[] bytes, int field) {
+        String value = new String(bytes, fieldStart[field], fieldEnd[field] - fieldStart[field], StandardCharsets.UTF_8);
+        return fieldQuoted[field] && value.indexOf('"') >= 0 ? value.replace("\"\"", "\"") : value.trim();
+    }
+
+    private static boolean isHeader(byte[] bytes, int start, int end) {
+        return end - start >= 2
+            && (bytes[start] | 0x20) == 'i'
+            && (bytes[start + 1] | 0x20) == 'd';
+    }
+
+    /**
+     * Parses a whole number from the bytes, ignoring surrounding spaces.
+     *
+     * @return the number, or Long.MIN_VALUE if the field is not a valid number
+     */
+    private static long parseLong(byte[] bytes, int start, int end) {
+        while (start < end && bytes[start] == ' ') start++;
+        while (end > start && bytes[end - 1] == ' ') end--;
+        if (start == end) return Long.MIN_VALUE;
+
+        boolean negative = bytes[start] == '-';
+        if (negative || bytes[start] == '+') start++;
+        if (start == end || end - start > 18) return Long.MIN_VALUE;
+
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) return Long.MIN_VALUE;
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses a decimal number such as "12.50" from the bytes.
+     *
+     * @return the number, or NaN if the field is not a valid decimal
+     */
+    private static double parseDecimal(byte[] bytes, int start, int end) {
+        while (start < end && bytes[start] == ' ') start++;
+        while (end > start && bytes[end - 1] == ' ') end--;
+        if (start == end) return Double.NaN;
+
+        boolean negative = bytes[start] == '-';
+        if (negative || bytes[start] == '+') start++;
+
+        long digits = 0;
+        int digitCount = 0;
+        int fractionDigits = -1; // -1 until the decimal point is seen
+        for (int i = start; i < end; i++) {
+            byte b = bytes[i];
+            if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+                continue;
+            }
+            int digit = b - '0';
+            if (digit < 0 || digit > 9 || ++digitCount > 18) return Double.NaN;
+            digits = digits * 10 + digit;
+            if (fractionDigits >= 0) fractionDigits++;
+        }
+        if (digitCount == 0) return Double.NaN;
+
+        // Dividing two exact values gives the correctly rounded result for prices
+        double value = fractionDigits > 0 ? digits / Math.pow(10, fractionDigits) : digits;
+        return negative ? -value : value;
+    }
+}
@@ -0,0 +1,130 @@
+package services;
+
+import models.InventoryItem;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InventoryLoaderTest {
+    private InventoryService inventory;
+    private InventoryLoader loader;
+
+    @BeforeEach
+    public void setUp() {
+        inventory = new InventoryService();
+        inventory.addInventoryItem(1, "Screwdriver", "Flathead screwdriver", 3.99, 10);
+        loader = new InventoryLoader(inventory, 2); // Small batches to exercise flushing
+    }
+
+    private Path writeCsv(String content) throws IOException {
+        Path file = Files.createTempFile("inventory", ".csv");
+        file.toFile().deleteOnExit();
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    public void testLoadCsv() throws IOException {
+        Path file = writeCsv("id,name,description,unitPrice,quantity\r\n"
+            + "2,Hammer,Steel hammer,8.49,25\r\n"
+            + "3,\"Wrench, large\",\"The \"\"big\"\" one\",12.5,4\n"
+            + "4,Chisel,Wood chisel,2,0");
+
+        InventoryLoadReport report = loader.loadCsv(file);
+
+        assertEquals(3, report.getRowsRead());
+        assertEquals(3, report.getRowsLoaded());
+        assertEquals(0, report.getRowsRejected());
+        assertEquals(8.49, inventory.findById(2).getPrice());
+        assertEquals("Wrench, large", inventory.findById(3).getName());
+        assertEquals("The \"big\" one", inventory.findById(3).getDescription());
+        assertEquals(0, (int) inventory.getStockLevelById(4));
+    }
+
+    @Test
+    public void testLoadCsvRejectsBadRows() throws IOException {
+        Path file = writeCsv("1,Duplicate,Already loaded,1.00,1\n"
+            + "2,Hammer,Steel hammer,abc,25\n"
+            + "3,Wrench,Adjustable wrench,6.99\n"
+            + "4,Chisel,Wood chisel,2.99,-5\n"
+            + "5,Saw,Hand saw,9.99,7\n");
+
+        InventoryLoadReport report = loader.loadCsv(file);
+
+        assertEquals(5, report.getRowsRead());
+        assertEquals(1, report.getRowsLoaded());
+        assertEquals(4, report.getRowsRejected());
+        assertTrue(report.getRejections().stream()
+            .anyMatch(row -> row.getLineNumber() == 1 && row.getReason().startsWith("Duplicate")));
+        assertEquals("Screwdriver", inventory.findById(1).getName());
+        InventoryItem saw = inventory.findById(5);
+        assertNotNull(saw);
+        assertNull(inventory.findById(2));
+    }
+
+    @Test
+    public void testLoadCsvKeepsLineBreaksInQuotedFields() throws IOException {
+        Path file = writeCsv("id,name,description,unitPrice,quantity\n"
+            + "2,Hammer,\"Steel hammer\nwith rubber grip\",8.49,25\n"
+            + "3,\"Wrench\",\"Line one\r\n\"\"two\"\"\",6.99,15\n"
+            + "4,Chisel,Wood chisel,2.99\n"
+            + "5,Saw,\"Never closed,9.99,7\n");
+
+        InventoryLoadReport report = loader.loadCsv(file);
+
+        assertEquals(4, report.getRowsRead());
+        assertEquals(2, report.getRowsLoaded());
+        assertEquals("Steel hammer\nwith rubber grip", inventory.findById(2).getDescription());
+        assertEquals("Line one\r\n\"two\"", inventory.findById(3).getDescription());
+        assertEquals(15, (int) inventory.getStockLevelById(3));
+
+        // Rows are reported by the line they start on
+        assertEquals(2, report.getRejections().size());
+        assertEquals(6, report.getRejections().get(0).getLineNumber());
+        assertEquals(7, report.getRejections().get(1).getLineNumber());
+        assertEquals("Malformed quoted field", report.getRejections().get(1).getReason());
+    }
+
+    @Test
+    public void testLoadCsvKeepsQuotedLineBreakAcrossBufferRefill() throws IOException {
+        StringBuilder csv = new StringBuilder();
+        int id = 2;
+        while (csv.length() < (1 << 20) - 20) {
+            csv.append(id++).append(",Part,Spare part,1.00,1\n");
+        }
+        int multiLineId = id;
+        // The read buffer fills up inside this row's quoted description
+        csv.append(multiLineId).append(",Bracket,\"Shelf\n\n\n\n\n\n\n\n\n\n\n\n\n\n\n\n\n\n\n\n\n\n\nbracket\",2.00,3\n");
+        csv.append(multiLineId + 1).append(",Hinge,Door hinge,1.50,4\n");
+
+        InventoryLoadReport report = loader.loadCsv(writeCsv(csv.toString()));
+
+        assertEquals(0, report.getRowsRejected());
+        assertEquals(multiLineId, report.getRowsLoaded());
+        assertEquals("Shelf" + "\n".repeat(23) + "bracket", inventory.findById(multiLineId).getDescription());
+        assertEquals("Hinge", inventory.findById(multiLineId + 1).getName());
+    }
+
+    @Test
+    public void testLoadCsvRejectsNonPositiveIds() throws IOException {
+        Path file = writeCsv("2,Hammer,Steel hammer,8.49,25\n"
+            + "0,Nothing,Zero id,1.00,1\n"
+            + "-3,Negative,Negative id,1.00,1\n");
+
+        InventoryLoadReport report = loader.loadCsv(file);
+
+        assertEquals(1, report.getRowsLoaded());
+        assertEquals(2, report.getRowsRejected());
+        assertEquals(2, report.getRejections().get(0).getLineNumber());
+        assertEquals("Id must be positive but was 0", report.getRejections().get(0).getReason());
+        assertEquals(3, report.getRejections().get(1).getLineNumber());
+        assertEquals("Id must be positive but was -3", report.getRejections().get(1).getReason());
+        assertNull(inventory.findById(0));
+    }
+}
@@ -0,0 +1,392 @@
+package services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+import models.InventoryItem;
+
+/**
+ * An inverted index over the words in inventory item names and descriptions.
+ *
+ * Every word maps to the IDs of the items containing it. Words are also kept
+ * in sorted order so that a query word can match every indexed word it is a
+ * prefix of (e.g. "key" matches "keyboard") by visiting a contiguous range
+ * instead of scanning the catalogue. The index is updated as items are added
+ * and removed.
+ *
+ * To keep bulk loads fast, the sorted words are held in a plain array and new
+ * words go into a small sorted set, which is merged into the array once it
+ * grows past a fraction of the array's size.
+ *
+ * For multi-word queries the most selective word is looked up in the index
+ * first, and the remaining words are only checked against those candidates.
+ */
+class InventorySearchIndex {
+    // Bit flags recording where a word appears in an item
+    private static final int IN_NAME = 1;
+    private static final int IN_DESCRIPTION = 2;
+
+    private static final int MIN_MERGE_SIZE = 1024;
+
+    private final Map<String, Postings> postings;    // word -> items containing it
+    private final Map<Integer, InventoryItem> items; // Indexed items, to re-check candidates
+    private String[] sortedWords;                    // May still hold words since removed from postings
+    private int sortedCount;
+    private final TreeSet<String> recentWords;       // Words added since the last merge, never also in sortedWords
+
+    /**
+     * Constructs an empty index.
+     */
+    InventorySearchIndex() {
+        postings = new HashMap<>();
+        items = new HashMap<>();
+        sortedWords = new String[0];
+        recentWords = new TreeSet<>();
+    }
+
+    /**
+     * Adds an item's name and description words to the index.
+     *
+     * @param item the item to index
+     */
+    synchronized void add(InventoryItem item) {
+        items.put(item.getId(), item);
+        for (String word : tokenize(item.getName())) {
+            postingsFor(word).add(item.getId(), IN_NAME);
+        }
+        for (String word : tokenize(item.getDescription())) {
+            postingsFor(word).add(item.getId(), IN_DESCRIPTION);
+        }
+    }
+
+    private Postings postingsFor(String word) {
+        Postings wordPostings = postings.get(word);
+        if (wordPostings == null) {
+            wordPostings = new Postings();
+            postings.put(word, wordPostings);
+            if (!isSorted(word)) { // A word removed and added back is still in the sorted words
+                recentWords.add(word);
+                if (recentWords.size() > Math.max(MIN_MERGE_SIZE, sortedCount / 8)) {
+                    mergeRecentWords();
+                }
+            }
+        }
+        return wordPostings;
+    }
+
+    private boolean isSorted(String word) {
+        int index = firstSortedIndex(word);
+        return index < sortedCount && sortedWords[index].equals(word);
+    }
+
+    /**
+     * Merges the recently added words into the sorted array, dropping words
+     * that no longer belong to any item.
+     */
+    private void mergeRecentWords() {
+        String[] merged = new String[sortedCount + recentWords.size()];
+        int count = 0;
+        int i = 0;
+        for (String recent : recentWords) {
+            while (i < sortedCount && sortedWords[i].compareTo(recent) < 0) {
+                if (postings.containsKey(sortedWords[i])) merged[count++] = sortedWords[i];
+                i++;
+            }
+            if (postings.containsKey(recent)) merged[count++] = recent;
+        }
+        while (i < sortedCount) {
+            if (postings.containsKey(sortedWords[i])) merged[count++] = sortedWords[i];
+            i++;
+        }
+        sortedWords = merged;
+        sortedCount = count;
+        recentWords.clear();
+    }
+
+    /**
+     * Removes an item's words from the index.
+     *
+     * @param item the item to remove
+     */
+    synchronized void remove(InventoryItem item) {
+        items.remove(item.getId());
+        List<String> words = tokenize(item.getName());
+        words.addAll(tokenize(item.getDescription()));
+        for (String word : words) {
+            Postings wordPostings = postings.get(word);
+            if (wordPostings != null) {
+                wordPostings.remove(item.getId());
+                if (wordPostings.size() == 0) {
+                    postings.remove(word); // Left in the sorted words until the next merge
+                    recentWords.remove(word);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the items matching every word of the query, best matches first.
+     *
+     * Each query word matches indexed words that start with it. A match scores
+     * higher when it is in the name rather than the description, and when the
+     * whole word matches rather than only a prefix. Ties are broken by item ID.
+     * Only the best {@code limit} matches are kept and sorted.
+     *
+     * @param query the search text
+     * @param limit the maximum number of results to return
+     * @return the best matching item IDs in ranked order
+     */
+    synchronized List<Integer> search(String query, int limit) {
+        List<String> queryWords = tokenize(query);
+        if (queryWords.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Start from the word matching the fewest items
+        String rarest = queryWords.get(0);
+        long fewest = Long.MAX_VALUE;
+        for (String queryWord : queryWords) {
+            long matches = countMatches(queryWord, fewest);
+            if (matches < fewest) {
+                fewest = matches;
+                rarest = queryWord;
+            }
+        }
+        Map<Integer, Integer> scores = scoreFromIndex(rarest);
+        queryWords.remove(rarest);
+
+        // Check the other words against each candidate's own text
+        List<String> names = new ArrayList<>();
+        List<String> descriptions = new ArrayList<>();
+        scores.entrySet().removeIf(entry -> {
+            InventoryItem item = items.get(entry.getKey());
+            names.clear();
+            names.addAll(tokenize(item.getName()));
+            descriptions.clear();
+            descriptions.addAll(tokenize(item.getDescription()));
+
+            int total = entry.getValue();
+            for (String queryWord : queryWords) {
+                int best = Math.max(bestScore(queryWord, names, IN_NAME), bestScore(queryWord, descriptions, IN_DESCRIPTION));
+                if (best == 0) return true;
+                total += best;
+            }
+            entry.setValue(total);
+            return false;
+        });
+
+        Comparator<Integer> bestFirst = (a, b) -> {
+            int byScore = Integer.compare(scores.get(b), scores.get(a));
+            return byScore != 0 ? byScore : Integer.compare(a, b);
+        };
+
+        // Keep the top matches in a bounded heap whose head is the worst kept match
+        PriorityQueue<Integer> best = new PriorityQueue<>(bestFirst.reversed());
+        for (Integer itemId : scores.keySet()) {
+            best.add(itemId);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<Integer> ranked = new ArrayList<>(best);
+        ranked.sort(bestFirst);
+        return ranked;
+    }
+
+    /**
+     * Counts the item entries for words starting with the query word, stopping once the limit is passed.
+     */
+    synchronized long countMatches(String queryWord, long limit) {
+        long count = 0;
+        for (String word : wordsWithPrefix(queryWord)) {
+            count += postings.get(word).size();
+            if (count >= limit) break;
+        }
+        return count;
+    }
+
+    /**
+     * Scores every item matched by a single query word using the index.
+     *
+     * @param queryWord the query word, used as a prefix
+     * @return a map of item IDs to their best score for this word
+     */
+    private Map<Integer, Integer> scoreFromIndex(String queryWord) {
+        Map<Integer, Integer> wordScores = new HashMap<>();
+        for (String word : wordsWithPrefix(queryWord)) {
+            boolean exact = word.length() == queryWord.length();
+            postings.get(word).forEach((itemId, fields) -> wordScores.merge(itemId, score(fields, exact), Math::max));
+        }
+        return wordScores;
+    }
+
+    /**
+     * Returns the indexed words that start with the given prefix, in no particular order.
+     */
+    private Iterable<String> wordsWithPrefix(String prefix) {
+        return () -> new Iterator<String>() {
+            // Binary search for the first sorted word >= prefix
+            private int index = firstSortedIndex(prefix);
+            // All recent words starting with prefix sort between prefix and prefix + Character.MAX_VALUE
+            private final Iterator<String> recent =
+                recentWords.subSet(prefix, true, prefix + Character.MAX_VALUE, false).iterator();
+            private String next = advance();
+
+            private String advance() {
+                while (index < sortedCount && sortedWords[index].startsWith(prefix)) {
+                    String word = sortedWords[index++];
+                    if (postings.containsKey(word)) return word;
+                }
+                index = sortedCount;
+                return recent.hasNext() ? recent.next() : null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public String next() {
+                String word = next;
+                next = advance();
+                return word;
+            }
+        };
+    }
+
+    private int firstSortedIndex(String prefix) {
+        int low = 0;
+        int high = sortedCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedWords[mid].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int bestScore(String queryWord, List<String> words, int field) {
+        int best = 0;
+        for (String word : words) {
+            if (word.startsWith(queryWord)) {
+                best = Math.max(best, score(field, word.length() == queryWord.length()));
+            }
+        }
+        return best;
+    }
+
+    private static int score(int fields, boolean exact) {
+        int score = (fields & IN_NAME) != 0 ? 4 : 1;
+        return exact ? score * 2 : score;
+    }
+
+    /**
+     * Splits text into lower case words of letters and digits.
+     *
+     * @param text the text to split, may be null
+     * @return the words in order of appearance
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) return words;
+
+        char[] word = new char[text.length()];
+        int length = 0;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word[length++] = Character.toLowerCase(c);
+            } else if (length > 0) {
+                words.add(new String(word, 0, length));
+                length = 0;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * The items containing one word, with flags for where the word appears.
+     *
+     * Most words belong to only a few items, so entries start in small parallel
+     * arrays and move to a hash table once the list grows, keeping both memory
+     * and removal cost low.
+     */
+    private static class Postings {
+        private static final int ARRAY_LIMIT = 32;
+
+        private int[] ids = new int[2];
+        private int[] flags = new int[2];
+        private int size;
+        private IntIntMap table; // Used instead of the arrays once they grow past ARRAY_LIMIT
+
+        void add(int itemId, int field) {
+            if (table != null) {
+                table.put(itemId, table.getOrDefault(itemId, 0) | field);
+                return;
+            }
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == itemId) {
+                    flags[i] |= field;
+                    return;
+                }
+            }
+            if (size == ARRAY_LIMIT) {
+                table = new IntIntMap(ARRAY_LIMIT * 2);
+                for (int i = 0; i < size; i++) {
+                    table.put(ids[i], flags[i]);
+                }
+                ids = null;
+                flags = null;
+                table.put(itemId, field);
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                flags = Arrays.copyOf(flags, size * 2);
+            }
+            ids[size] = itemId;
+            flags[size] = field;
+            size++;
+        }
+
+        void remove(int itemId) {
+            if (table != null) {
+                table.remove(itemId);
+                return;
+            }
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == itemId) {
+                    size--;
+                    ids[i] = ids[size];
+                    flags[i] = flags[size];
+                    return;
+                }
+            }
+        }
+
+        int size() {
+            return table != null ? table.size() : size;
+        }
+
+        void forEach(IntIntMap.EntryVisitor visitor) {
+            if (table != null) {
+                table.forEach(visitor);
+                return;
+            }
+            for (int i = 0; i < size; i++) {
+                visitor.visit(ids[i], flags[i]);
+            }
+        }
+    }
+}
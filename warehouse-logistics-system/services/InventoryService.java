@@ -4,8 +4,14 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
 
 import models.InventoryItem;
+import models.SnapshotList;
+import models.StockChangeCause;
+import models.StockListener;
 
 /**
  * InventoryService manages the inventory of items in a warehouse.
@@ -14,30 +20,136 @@ import models.InventoryItem;
  * 
  * This class is responsible for maintaining the inventory state and providing
  * operations related to inventory management.
- * It uses a list to store inventory items and provides methods to manipulate
- * and retrieve these items based on various criteria.
+ * Items are stored in a map keyed by their ID, so lookups, updates and
+ * removals by ID take constant time regardless of catalogue size. The full
+ * item list is published as an immutable {@link SnapshotList}, so listing the
+ * inventory does not copy it. Quantities are mirrored into a primitive stock level table,
+ * kept up to date through each item's {@link StockListener}, so stock level
+ * queries do not need to box or allocate. The same listener maintains an
+ * index of low stock items, each measured against its own threshold.
+ * Item names and descriptions are kept in an inverted index for text search.
+ * Every quantity change is also published to a {@link StockEventRing}, so other
+ * components can follow stock movements without rescanning the inventory.
  */
 public class InventoryService {
-    private List<InventoryItem> inventory;
+    public static final int DEFAULT_LOW_STOCK_THRESHOLD = 20;
+    private static final int LOCK_STRIPES = 64;
+    private static final int STOCK_EVENT_CAPACITY = 8192;
+
+    private Map<Integer, InventoryItem> inventory;
+    private volatile SnapshotList<InventoryItem> itemSnapshot; // All items, in the order added
+    private final IntIntMap snapshotPositions;                 // Item ID -> index in itemSnapshot; guarded by this
+    private final StockLevelTable stockLevels;
+    private final LowStockIndex lowStockIndex;
+    private final StockListener stockListener;
+    private final StripedLocks itemLocks;
+    private final InventorySearchIndex searchIndex;
+    private final AtomicInteger highestId; // High-water mark used to allocate new IDs
+    private final StockEventRing stockEvents;
+    private final StockEventBuffer heldStockEvents; // Events produced while item stripes are held
 
     // Constructor
     public InventoryService() {
-        inventory = new ArrayList<>();
+        inventory = new ConcurrentHashMap<>();
+        itemSnapshot = SnapshotList.empty();
+        snapshotPositions = new IntIntMap();
+        stockLevels = new StockLevelTable();
+        lowStockIndex = new LowStockIndex(DEFAULT_LOW_STOCK_THRESHOLD, inventory::get);
+        itemLocks = new StripedLocks(LOCK_STRIPES);
+        searchIndex = new InventorySearchIndex();
+        highestId = new AtomicInteger(0);
+        stockEvents = new StockEventRing(STOCK_EVENT_CAPACITY);
+        heldStockEvents = new StockEventBuffer(stockEvents);
+        stockListener = (item, oldQuantity, newQuantity, cause, orderId) -> {
+            // Notifications from different threads can arrive out of order, so the table
+            // re-reads the live quantity under the item's own stripe instead of trusting
+            // newQuantity. Neither step takes a lock shared by all items, so this runs in
+            // parallel for different items even inside reserveAll's striped section.
+            stockLevels.refresh(item);
+            lowStockIndex.markChanged(item);
+            // Publishing may wait for a slow subscriber, so inside reserveAll and
+            // reserveEach the event is held and published after the stripes are released
+            heldStockEvents.publish(item.getId(), newQuantity - oldQuantity, newQuantity, cause, orderId);
+        };
     }
 
     // Inventory Management Operations
+    /**
+     * Adds a new item to the inventory.
+     *
+     * @throws IllegalArgumentException if an item with the same ID already exists.
+     */
     public void addInventoryItem(int id, String name, String description, double unitPrice, int quantity) {
-        InventoryItem item = new InventoryItem(id, name, description, unitPrice, quantity);
-        inventory.add(item);
+        if (!insert(new InventoryItem(id, name, description, unitPrice, quantity))) {
+            throw new IllegalArgumentException("Inventory item with ID " + id + " already exists.");
+        }
+    }
+
+    /**
+     * Adds a batch of new items to the inventory, for example from a bulk load.
+     * Items whose ID is already in use are skipped rather than failing the batch.
+     *
+     * @param items The items to add.
+     * @return The items that were rejected because of a duplicate ID.
+     */
+    public List<InventoryItem> addInventoryItems(List<InventoryItem> items) {
+        List<InventoryItem> rejected = new ArrayList<>();
+        for (InventoryItem item : items) {
+            if (!insert(item)) {
+                rejected.add(item);
+            }
+        }
+        return rejected;
+    }
+
+    /**
+     * Stores a new item and registers it with the stock table and indexes.
+     *
+     * @return False if an item with the same ID already exists.
+     */
+    private synchronized boolean insert(InventoryItem item) {
+        int id = item.getId();
+        if (inventory.containsKey(id)) {
+            return false;
+        }
+        inventory.put(id, item);
+        snapshotPositions.put(id, itemSnapshot.size());
+        itemSnapshot = itemSnapshot.append(item);
+        stockLevels.put(id, item.getQuantity());
+        lowStockIndex.update(item, item.getQuantity());
+        searchIndex.add(item);
+        item.setStockListener(stockListener);
+        highestId.accumulateAndGet(id, Math::max);
+        return true;
     }
 
     /**
      * Removes an inventory item by its ID.
+     * The listing keeps its order; only the part after the removed item is copied.
      * 
      * @param id The ID of the item to remove.
      */
-    public void removeItemById(int id) {
-        inventory.removeIf(item -> item.getId() == id);
+    public synchronized void removeItemById(int id) {
+        InventoryItem removed = inventory.remove(id);
+        if (removed != null) {
+            removeFromSnapshot(id);
+            removed.setStockListener(null);
+            stockLevels.remove(id);
+            lowStockIndex.remove(id);
+            searchIndex.remove(removed);
+            // Free the top ID for reuse, unless a higher one has been handed out meanwhile
+            highestId.compareAndSet(id, id - 1);
+        }
+    }
+
+    private void removeFromSnapshot(int id) {
+        int position = snapshotPositions.getOrDefault(id, -1);
+        snapshotPositions.remove(id);
+        itemSnapshot = itemSnapshot.without(position);
+        // Removal shifts the later items down, so renumber them
+        for (int i = position; i < itemSnapshot.size(); i++) {
+            snapshotPositions.put(itemSnapshot.get(i).getId(), i);
+        }
     }
 
     /**
@@ -52,6 +164,258 @@ public class InventoryService {
         return false;
     }
 
+    /**
+     * Atomically reserve stock of an item, for example for a sale.
+     * Fails without changing anything if there is not enough stock.
+     *
+     * @param id The item ID.
+     * @param quantity The number of units to reserve.
+     * @return True if the units were reserved, false if the item does not exist or stock is insufficient.
+     */
+    public boolean tryReserve(int id, int quantity) {
+        InventoryItem item = findById(id);
+        return item != null && item.tryReserve(quantity);
+    }
+
+    /**
+     * Atomically reserve stock for several items at once, all or nothing.
+     *
+     * Only the lock stripes covering the given items are held, acquired in a fixed
+     * order, so orders touching different items proceed in parallel. Either every
+     * line is reserved or, if any item is missing or short, none are.
+     *
+     * @param ids The item IDs, one per line.
+     * @param quantities The quantity to reserve for each line.
+     * @return True if every line was reserved, otherwise false and stock is unchanged.
+     */
+    public boolean reserveAll(int[] ids, int[] quantities) {
+        return reserveAll(ids, quantities, 0);
+    }
+
+    /**
+     * Atomically reserve stock for several items at once, all or nothing,
+     * recording the order responsible in the stock events.
+     *
+     * @param ids The item IDs, one per line.
+     * @param quantities The quantity to reserve for each line.
+     * @param orderId The order the stock is reserved for, or 0 if none.
+     * @return True if every line was reserved, otherwise false and stock is unchanged.
+     */
+    public boolean reserveAll(int[] ids, int[] quantities, int orderId) {
+        InventoryItem[] items = resolve(ids);
+        return items != null && reserveAll(items, quantities, orderId);
+    }
+
+    /**
+     * Atomically reserve stock for items the caller has already looked up, all or nothing.
+     *
+     * @param items The inventory items, one per line.
+     * @param quantities The quantity to reserve for each line.
+     * @param orderId The order the stock is reserved for, or 0 if none.
+     * @return True if every line was reserved, otherwise false and stock is unchanged.
+     */
+    public boolean reserveAll(InventoryItem[] items, int[] quantities, int orderId) {
+        int[] stripes = itemLocks.stripesFor(idsOf(items));
+        itemLocks.lock(stripes);
+        heldStockEvents.hold();
+        try {
+            return reserveLines(items, quantities, orderId);
+        } finally {
+            itemLocks.unlock(stripes);
+            heldStockEvents.publishHeld();
+        }
+    }
+
+    /**
+     * Atomically reserve stock for a new order, all or nothing, and take the
+     * order's ID only once the stock is secured, so rejected orders use no ID.
+     * The ID is still recorded in the order's stock events.
+     *
+     * @param items The inventory items, one per line.
+     * @param quantities The quantity to reserve for each line.
+     * @param newOrderId Supplies the order's ID; called only if every line was
+     *                   reserved, while the item locks are held.
+     * @return The order's ID, or 0 if any line was short and stock is unchanged.
+     */
+    public int reserveForNewOrder(InventoryItem[] items, int[] quantities, IntSupplier newOrderId) {
+        int[] stripes = itemLocks.stripesFor(idsOf(items));
+        itemLocks.lock(stripes);
+        heldStockEvents.hold();
+        try {
+            int firstEvent = heldStockEvents.heldCount();
+            if (!reserveLines(items, quantities, 0)) return 0;
+            int orderId = newOrderId.getAsInt();
+            heldStockEvents.setOrderId(firstEvent, heldStockEvents.heldCount(), orderId);
+            return orderId;
+        } finally {
+            itemLocks.unlock(stripes);
+            heldStockEvents.publishHeld();
+        }
+    }
+
+    /**
+     * Reserve stock for a batch of orders, each order all or nothing.
+     *
+     * The lock stripes for every item in the batch are acquired once, in a fixed
+     * order, and the orders are then reserved one after another in batch order.
+     * An order that is short on any line, or names a missing item, reserves nothing
+     * and does not affect the others.
+     *
+     * @param ids The item IDs of each order's lines.
+     * @param quantities The quantities of each order's lines.
+     * @param orderIds The ID of each order, recorded in the stock events.
+     * @return For each order, true if all its lines were reserved.
+     */
+    public boolean[] reserveEach(int[][] ids, int[][] quantities, int[] orderIds) {
+        InventoryItem[][] items = new InventoryItem[ids.length][];
+        for (int order = 0; order < ids.length; order++) {
+            items[order] = resolve(ids[order]);
+        }
+        return reserveEach(items, quantities, orderIds);
+    }
+
+    /**
+     * Reserve stock for a batch of orders whose items the caller has already looked up,
+     * each order all or nothing. See {@link #reserveEach(int[][], int[][], int[])}.
+     *
+     * @param items The inventory items of each order's lines; a null entry fails that order.
+     * @param quantities The quantities of each order's lines.
+     * @param orderIds The ID of each order, recorded in the stock events.
+     * @return For each order, true if all its lines were reserved.
+     */
+    public boolean[] reserveEach(InventoryItem[][] items, int[][] quantities, int[] orderIds) {
+        return reserveEach(items, quantities, reserved -> orderIds);
+    }
+
+    /**
+     * Reserve stock for a batch of orders whose items the caller has already looked
+     * up, each order all or nothing, and only then ask for the orders' IDs. This
+     * lets the caller number just the orders that go ahead. See
+     * {@link #reserveEach(int[][], int[][], int[])}.
+     *
+     * @param items The inventory items of each order's lines; a null entry fails that order.
+     * @param quantities The quantities of each order's lines.
+     * @param assigner Chooses each order's ID once the reservations are known.
+     * @return For each order, true if all its lines were reserved.
+     */
+    public boolean[] reserveEach(InventoryItem[][] items, int[][] quantities, OrderIdAssigner assigner) {
+        boolean[] reserved = new boolean[items.length];
+        int lineCount = 0;
+        for (InventoryItem[] lines : items) {
+            if (lines != null) lineCount += lines.length;
+        }
+        int[] allIds = new int[lineCount];
+        int next = 0;
+        for (InventoryItem[] lines : items) {
+            if (lines == null) continue;
+            for (InventoryItem item : lines) {
+                allIds[next++] = item.getId();
+            }
+        }
+
+        int[] stripes = itemLocks.stripesFor(allIds);
+        itemLocks.lock(stripes);
+        heldStockEvents.hold();
+        try {
+            int[] firstEvent = new int[items.length + 1];
+            for (int order = 0; order < items.length; order++) {
+                firstEvent[order] = heldStockEvents.heldCount();
+                reserved[order] = items[order] != null && reserveLines(items[order], quantities[order], 0);
+            }
+            firstEvent[items.length] = heldStockEvents.heldCount();
+
+            // The events are still held, so they can be labelled with the IDs chosen now
+            int[] orderIds = assigner.assign(reserved);
+            for (int order = 0; order < items.length; order++) {
+                heldStockEvents.setOrderId(firstEvent[order], firstEvent[order + 1], orderIds[order]);
+            }
+        } finally {
+            itemLocks.unlock(stripes);
+            heldStockEvents.publishHeld();
+        }
+        return reserved;
+    }
+
+    private static int[] idsOf(InventoryItem[] items) {
+        int[] ids = new int[items.length];
+        for (int i = 0; i < items.length; i++) {
+            ids[i] = items[i].getId();
+        }
+        return ids;
+    }
+
+    /**
+     * Looks up the items for a set of lines.
+     *
+     * @return The items, or null if any is missing.
+     */
+    private InventoryItem[] resolve(int[] ids) {
+        InventoryItem[] items = new InventoryItem[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            items[i] = findById(ids[i]);
+            if (items[i] == null) return null;
+        }
+        return items;
+    }
+
+    /**
+     * Reserves every line or, if any is short, rolls back and reserves none.
+     * The caller must hold the lock stripes for the items.
+     */
+    private static boolean reserveLines(InventoryItem[] items, int[] quantities, int orderId) {
+        for (int i = 0; i < items.length; i++) {
+            if (!items[i].tryReserve(quantities[i], StockChangeCause.SALE, orderId)) {
+                // Roll back the lines reserved so far
+                for (int j = 0; j < i; j++) {
+                    items[j].addStock(quantities[j], StockChangeCause.RELEASE, orderId);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return previously reserved units of an item to stock.
+     *
+     * @return True if the item exists, otherwise false.
+     */
+    public boolean release(int id, int quantity) {
+        InventoryItem item = findById(id);
+        if (item != null) {
+            item.release(quantity);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Atomically add units of an item to stock, for example when a delivery arrives.
+     *
+     * @return True if the item exists, otherwise false.
+     */
+    public boolean addStock(int id, int quantity) {
+        return addStock(id, quantity, StockChangeCause.DELIVERY, 0);
+    }
+
+    /**
+     * Atomically add units of an item to stock, recording why and for which order.
+     *
+     * @param id The item ID.
+     * @param quantity The number of units to add.
+     * @param cause The reason for the change.
+     * @param orderId The order responsible, or 0 if none.
+     * @return True if the item exists, otherwise false.
+     */
+    public boolean addStock(int id, int quantity, StockChangeCause cause, int orderId) {
+        InventoryItem item = findById(id);
+        if (item != null) {
+            item.addStock(quantity, cause, orderId);
+            return true;
+        }
+        return false;
+    }
+
     /**
      * Update the price of an inventory item by its ID.
      */
@@ -64,9 +428,22 @@ public class InventoryService {
         return false;
     }
 
+    /**
+     * Get the stream of stock change events. Subscribe to it to be told about
+     * every sale, delivery, release and manual adjustment as it happens.
+     */
+    public StockEventRing getStockEvents() {
+        return stockEvents;
+    }
+
     // Inventory Retrieval Operations
+    /**
+     * Returns all inventory items, in the order they were added.
+     * The list is an immutable snapshot: it is not copied and later changes to
+     * the inventory do not affect it.
+     */
     public List<InventoryItem> getAllInventoryItems() {
-        return new ArrayList<>(inventory);
+        return itemSnapshot;
     }
 
     /**
@@ -76,56 +453,147 @@ public class InventoryService {
      * @return The matching InventoryItem, or null if not found.
      */
     public InventoryItem findById(int id) {
-        for (InventoryItem item : inventory) {
-            if (item.getId() == id) {
-                return item;
+        return inventory.get(id);
+    }
+
+    /**
+     * Searches item names and descriptions, returning one page of ranked results.
+     *
+     * Every word in the query must match the start of a word in the item's name or
+     * description. Name matches and whole-word matches rank higher.
+     *
+     * @param query The search text, e.g. "wireless mou".
+     * @param page The zero-based page number.
+     * @param pageSize The maximum number of items per page.
+     * @return The items on the requested page, best matches first.
+     */
+    public List<InventoryItem> searchItems(String query, int page, int pageSize) {
+        if (page < 0 || pageSize <= 0) {
+            throw new IllegalArgumentException("Page must be >= 0 and page size must be > 0.");
+        }
+        int needed = (int) Math.min((long) (page + 1) * pageSize, Integer.MAX_VALUE);
+        List<Integer> ranked = searchIndex.search(query, needed);
+        List<InventoryItem> results = new ArrayList<>();
+        int from = (int) Math.min((long) page * pageSize, ranked.size());
+        int to = Math.min(from + pageSize, ranked.size());
+        for (int id : ranked.subList(from, to)) {
+            InventoryItem item = findById(id);
+            if (item != null) {
+                results.add(item);
             }
         }
-        return null;
+        return results;
     }
 
     /**
-     * Returns a map of items with stock levels below 20.
+     * Returns a map of items with stock levels below their low stock threshold.
+     * Only the low stock items are visited, not the whole inventory.
      */
     public Map<InventoryItem, Integer> getLowStockItems() {
-        Map<InventoryItem, Integer> lowStock = new HashMap<>();
-        for (InventoryItem item : inventory) {
-            if (item.getQuantity() < 20) {
-                lowStock.put(item, item.getQuantity());
-            }
+        return lowStockIndex.getLowStockItems();
+    }
+
+    /**
+     * Get the number of items currently below their low stock threshold.
+     */
+    public int getLowStockCount() {
+        return lowStockIndex.size();
+    }
+
+    /**
+     * Set the low stock threshold for a specific item.
+     *
+     * @param id The item ID.
+     * @param threshold Stock levels below this value are reported as low.
+     * @return True if the item exists, otherwise false.
+     */
+    public boolean setLowStockThreshold(int id, int threshold) {
+        InventoryItem item = findById(id);
+        if (item != null) {
+            lowStockIndex.setThreshold(item, threshold);
+            return true;
         }
-        return lowStock;
+        return false;
     }
 
     /**
-     * Get the next available ID for InventoryItem.
+     * Get the low stock threshold that applies to an item.
+     */
+    public int getLowStockThreshold(int id) {
+        return lowStockIndex.getThreshold(id);
+    }
+
+    /**
+     * Set the threshold used for items without their own low stock threshold.
+     */
+    public void setDefaultLowStockThreshold(int threshold) {
+        lowStockIndex.setDefaultThreshold(threshold, itemSnapshot);
+    }
+
+    /**
+     * Get the next available ID for InventoryItem without reserving it.
+     * Use {@link #allocateId()} when the ID is about to be used.
      */
     public int getNextAvailableId() {
-        int maxId = 0;
-        for (InventoryItem item : inventory) {
-            if (item.getId() > maxId) {
-                maxId = item.getId();
-            }
+        return highestId.get() + 1;
+    }
+
+    /**
+     * Reserve a new unique ID for an InventoryItem.
+     * Safe to call from several threads at once; each caller gets a different ID.
+     */
+    public int allocateId() {
+        return highestId.incrementAndGet();
+    }
+
+    /**
+     * Reserve a contiguous block of unique IDs, for example for a bulk import.
+     *
+     * @param count The number of IDs to reserve.
+     * @return The first ID of the block; the block is [first, first + count).
+     */
+    public int allocateIdBlock(int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("ID block size must be positive.");
         }
-        return maxId + 1;
+        return highestId.getAndAdd(count) + 1;
     }
 
     /**
      * Get the stock level for a specific item by ID.
      */
     public Integer getStockLevelById(int id) {
-        InventoryItem item = findById(id);
-        return item != null ? item.getQuantity() : null;
+        return stockLevels.contains(id) ? stockLevels.getOrDefault(id, 0) : null;
+    }
+
+    /**
+     * Get the stock level for a specific item by ID without boxing.
+     *
+     * @param id The item ID.
+     * @param defaultQuantity The value to return if the item does not exist.
+     * @return The quantity in stock, or defaultQuantity if not found.
+     */
+    public int getStockLevelOrDefault(int id, int defaultQuantity) {
+        return stockLevels.getOrDefault(id, defaultQuantity);
+    }
+
+    /**
+     * Passes the stock level of every item to the given visitor.
+     * Nothing is allocated, so this is suitable for frequent polling.
+     * The visitor must not modify the inventory.
+     *
+     * @param visitor The callback to receive each item ID and quantity.
+     */
+    public void forEachStockLevel(StockLevelVisitor visitor) {
+        stockLevels.forEach(visitor);
     }
 
     /**
      * Get stock levels for all items as a map of ID -> quantity.
      */
     public Map<Integer, Integer> getAllStockLevels() {
-        Map<Integer, Integer> stockLevels = new HashMap<>();
-        for (InventoryItem item : inventory) {
-            stockLevels.put(item.getId(), item.getQuantity());
-        }
-        return stockLevels;
+        Map<Integer, Integer> allLevels = new HashMap<>();
+        stockLevels.forEach(allLevels::put);
+        return allLevels;
     }
 }
@@ -1,11 +1,15 @@
 package services;
 
 import models.InventoryItem;
+import models.SnapshotList;
+import models.StockChangeCause;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -27,6 +31,13 @@ public class InventoryServiceTest {
         assertEquals("Wrench", added.getName());
     }
     
+    @Test
+    public void testAddInventoryItemWithDuplicateId() {
+        assertThrows(IllegalArgumentException.class,
+            () -> inventory.addInventoryItem(1, "Wrench", "Adjustable wrench", 6.99, 15));
+        assertEquals("Screwdriver", inventory.findById(1).getName());
+    }
+    
     @Test
     public void testRemoveItemById() {
         inventory.removeItemById(1);
@@ -54,6 +65,29 @@ public class InventoryServiceTest {
         assertEquals(10, (int) lowStock.get(lowItem));
     }
     
+    @Test
+    public void testLowStockItemsTrackQuantityChanges() {
+        inventory.updateItemQuantity(1, 40);
+        assertTrue(inventory.getLowStockItems().isEmpty());
+
+        inventory.findById(2).setQuantity(5);
+        Map<InventoryItem, Integer> lowStock = inventory.getLowStockItems();
+        assertEquals(1, lowStock.size());
+        assertEquals((Integer)5, lowStock.get(inventory.findById(2)));
+    }
+    
+    @Test
+    public void testLowStockThresholds() {
+        assertTrue(inventory.setLowStockThreshold(2, 30));
+        assertEquals(30, inventory.getLowStockThreshold(2));
+        assertEquals(2, inventory.getLowStockCount());
+
+        inventory.setDefaultLowStockThreshold(5);
+        assertEquals(1, inventory.getLowStockCount());
+        assertTrue(inventory.getLowStockItems().containsKey(inventory.findById(2)));
+        assertFalse(inventory.setLowStockThreshold(999, 10));
+    }
+    
     @Test
     public void testGetAllStockLevels() {
         Map<Integer, Integer> stockLevels = inventory.getAllStockLevels();
@@ -62,6 +96,258 @@ public class InventoryServiceTest {
         assertEquals((Integer)25, stockLevels.get(2));
     }
     
+    @Test
+    public void testStockLevelsFollowItemQuantity() {
+        inventory.findById(1).setQuantity(7);
+        assertEquals(7, inventory.getStockLevelOrDefault(1, -1));
+        assertEquals(-1, inventory.getStockLevelOrDefault(999, -1));
+
+        inventory.removeItemById(2);
+        assertNull(inventory.getStockLevelById(2));
+
+        int[] total = new int[1];
+        inventory.forEachStockLevel((id, quantity) -> total[0] += quantity);
+        assertEquals(7, total[0]);
+    }
+    
+    @Test
+    public void testTryReserveNeverGoesNegative() {
+        assertTrue(inventory.tryReserve(1, 4));
+        assertFalse(inventory.tryReserve(1, 7));
+        assertEquals(6, (int) inventory.getStockLevelById(1));
+
+        assertTrue(inventory.release(1, 4));
+        assertTrue(inventory.addStock(1, 5));
+        assertEquals(15, (int) inventory.getStockLevelById(1));
+        assertFalse(inventory.tryReserve(999, 1));
+    }
+    
+    @Test
+    public void testReserveAllIsAllOrNothing() {
+        assertFalse(inventory.reserveAll(new int[] {1, 2}, new int[] {5, 26}));
+        assertEquals(10, (int) inventory.getStockLevelById(1));
+        assertEquals(25, (int) inventory.getStockLevelById(2));
+
+        assertTrue(inventory.reserveAll(new int[] {1, 2}, new int[] {5, 25}));
+        assertEquals(5, (int) inventory.getStockLevelById(1));
+        assertEquals(0, (int) inventory.getStockLevelById(2));
+        assertFalse(inventory.reserveAll(new int[] {1, 999}, new int[] {1, 1}));
+    }
+    
+    @Test
+    public void testStockEventsReachEverySubscriber() {
+        StockEventRing events = inventory.getStockEvents();
+        StockEventRing.Subscription first = events.subscribe();
+        StockEventRing.Subscription second = events.subscribe();
+
+        assertTrue(inventory.reserveAll(new int[] {1, 2}, new int[] {4, 5}, 7));
+        inventory.addStock(1, 6, StockChangeCause.DELIVERY, 8);
+        inventory.updateItemQuantity(2, 30);
+        assertEquals(4, first.getLag());
+
+        List<String> seen = new ArrayList<>();
+        assertEquals(4, first.poll((sequence, itemId, delta, newQuantity, cause, orderId) ->
+            seen.add(itemId + " " + delta + " " + newQuantity + " " + cause + " " + orderId), 10));
+        assertEquals(List.of("1 -4 6 SALE 7", "2 -5 20 SALE 7", "1 6 12 DELIVERY 8", "2 10 30 ADJUSTMENT 0"), seen);
+        assertEquals(0, first.getLag());
+
+        // The second subscriber reads at its own pace
+        assertEquals(4, second.getLag());
+        assertEquals(1, second.poll((sequence, itemId, delta, newQuantity, cause, orderId) -> {}, 1));
+        assertEquals(3, second.getLag());
+    }
+    
+    @Test
+    public void testSlowSubscriberHoldsBackPublishers() throws InterruptedException {
+        StockEventRing ring = new StockEventRing(4);
+        StockEventRing.Subscription subscription = ring.subscribe();
+        for (int i = 0; i < 4; i++) {
+            ring.publish(1, 1, i, StockChangeCause.DELIVERY, 0);
+        }
+
+        Thread publisher = new Thread(() -> ring.publish(1, 1, 4, StockChangeCause.DELIVERY, 0));
+        publisher.start();
+        publisher.join(200);
+        assertTrue(publisher.isAlive(), "Publisher should wait while the buffer is full.");
+
+        AtomicInteger last = new AtomicInteger(-1);
+        while (last.get() < 4) {
+            subscription.poll((sequence, itemId, delta, newQuantity, cause, orderId) -> last.set(newQuantity), 10);
+        }
+        publisher.join();
+        assertEquals(1, ring.getPublisherWaitCount());
+        subscription.close();
+    }
+
+    @Test
+    public void testFullEventRingDoesNotBlockStockStripes() throws InterruptedException {
+        StockEventRing.Subscription stalled = inventory.getStockEvents().subscribe(); // Never polls
+        int capacity = inventory.getStockEvents().getCapacity();
+        for (int i = 0; i < capacity; i++) {
+            inventory.updateItemQuantity(1, 100 + (i & 1));
+        }
+
+        // This sale's event cannot be published until the stalled subscriber moves
+        Thread seller = new Thread(() -> inventory.reserveAll(new int[] { 1 }, new int[] { 1 }));
+        seller.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (inventory.getStockEvents().getPublisherWaitCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(1, inventory.getStockEvents().getPublisherWaitCount());
+
+        // The seller is waiting to publish, but no longer holds the item's stripe
+        Thread rejected = new Thread(() -> inventory.reserveAll(new int[] { 1 }, new int[] { 1_000_000 }));
+        rejected.start();
+        rejected.join(5000);
+        assertFalse(rejected.isAlive(), "A full event ring should not hold the item's stripe");
+
+        stalled.close();
+        seller.join(5000);
+        assertFalse(seller.isAlive());
+        assertEquals(100 + ((capacity - 1) & 1) - 1, inventory.findById(1).getQuantity());
+    }
+
+    @Test
+    public void testPublisherWaitsCountOnlyRealBackPressure() {
+        StockEventRing ring = new StockEventRing(8);
+        for (int i = 0; i < 100; i++) {
+            ring.publish(1, 1, i, StockChangeCause.DELIVERY, 0);
+        }
+        assertEquals(0, ring.getPublisherWaitCount(), "No subscriber, so nothing to wait for");
+
+        StockEventRing.Subscription subscription = ring.subscribe();
+        for (int i = 0; i < 100; i++) {
+            ring.publish(1, 1, i, StockChangeCause.DELIVERY, 0);
+            subscription.poll((sequence, itemId, delta, newQuantity, cause, orderId) -> {}, 8);
+        }
+        assertEquals(0, ring.getPublisherWaitCount(), "A caught-up subscriber should not count as a wait");
+        subscription.close();
+    }
+
+    @Test
+    public void testThrowingHandlerDoesNotStallPublishers() throws InterruptedException {
+        StockEventRing ring = new StockEventRing(4);
+        AtomicInteger handled = new AtomicInteger();
+        StockEventRing.Subscription subscription = ring.subscribe("throwing-consumer",
+            (sequence, itemId, delta, newQuantity, cause, orderId) -> {
+                handled.incrementAndGet();
+                if (newQuantity == 1) throw new IllegalStateException("Handler failure");
+            });
+
+        // Far more events than the buffer holds; each publish would block if the consumer died
+        Thread publisher = new Thread(() -> {
+            for (int i = 0; i < 50; i++) {
+                ring.publish(1, 1, i, StockChangeCause.DELIVERY, 0);
+            }
+        });
+        publisher.start();
+        publisher.join(5000);
+        assertFalse(publisher.isAlive(), "Publisher should not block after a handler throws.");
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (handled.get() < 50 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(50, handled.get());
+        assertFalse(subscription.isClosed());
+        subscription.close();
+    }
+    
+    @Test
+    public void testConcurrentReservationsDoNotOversell() throws InterruptedException {
+        inventory.updateItemQuantity(2, 1000);
+        AtomicInteger reserved = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 300; i++) {
+                    if (inventory.tryReserve(2, 1)) {
+                        reserved.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1000, reserved.get());
+        assertEquals(0, (int) inventory.getStockLevelById(2));
+    }
+    
+    @Test
+    public void testConcurrentStockChangesKeepTableAndLowStockInStep() throws InterruptedException {
+        for (int id = 3; id <= 10; id++) {
+            inventory.addInventoryItem(id, "Item " + id, "Test item", 1.0, 2000);
+        }
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            int itemId = 3 + t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    inventory.reserveAll(new int[] { itemId, 3 + (itemId + 1) % 8 }, new int[] { 1, 1 }, 0);
+                    inventory.addStock(itemId, 1);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Each item lost 500 to its own reservations and 500 to its neighbour's, and got 500 back
+        for (int id = 3; id <= 10; id++) {
+            assertEquals(1500, inventory.findById(id).getQuantity());
+            assertEquals(1500, (int) inventory.getStockLevelById(id));
+        }
+        assertEquals(1, inventory.getLowStockCount(), "Only the screwdriver should be low");
+
+        inventory.updateItemQuantity(4, 5);
+        assertEquals(2, inventory.getLowStockCount());
+    }
+
+    @Test
+    public void testSearchItems() {
+        inventory.addInventoryItem(3, "Steel ruler", "Metal measuring ruler", 1.99, 40);
+
+        List<InventoryItem> results = inventory.searchItems("steel", 0, 10);
+        assertEquals(2, results.size());
+        assertEquals("Steel ruler", results.get(0).getName()); // name match ranks above description match
+        assertEquals("Hammer", results.get(1).getName());
+
+        assertEquals("Screwdriver", inventory.searchItems("flat scr", 0, 10).get(0).getName());
+        assertEquals(1, inventory.searchItems("steel", 1, 1).size());
+        assertTrue(inventory.searchItems("steel", 2, 1).isEmpty());
+
+        inventory.removeItemById(3);
+        assertEquals(1, inventory.searchItems("steel", 0, 10).size());
+    }
+
+    @Test
+    public void testSearchWordReaddedBeforeMergeIsCountedOnce() {
+        InventorySearchIndex index = new InventorySearchIndex();
+        InventoryItem gadget = new InventoryItem(1, "Gadget", "Small gadget", 1.0, 1);
+        index.add(gadget);
+        // Enough new words to merge the recent words, "gadget" included, into the sorted words
+        for (int id = 2; id < 1100; id++) {
+            index.add(new InventoryItem(id, "Part" + id, "Spare", 1.0, 1));
+        }
+
+        index.remove(gadget);
+        InventoryItem widget = new InventoryItem(5000, "Gadget", "Replacement", 1.0, 1);
+        index.add(widget);
+
+        assertEquals(1, index.countMatches("gadget", Long.MAX_VALUE));
+        assertEquals(List.of(5000), index.search("gadget", 10));
+
+        // A later merge must not leave the word in the sorted words twice
+        for (int id = 6000; id < 7200; id++) {
+            index.add(new InventoryItem(id, "Bolt" + id, "Spare", 1.0, 1));
+        }
+        assertEquals(1, index.countMatches("gadget", Long.MAX_VALUE));
+    }
+    
     @Test
     public void testGetNextAvailableId() {
         assertEquals(3, inventory.getNextAvailableId());
@@ -69,6 +355,17 @@ public class InventoryServiceTest {
         assertEquals(6, inventory.getNextAvailableId());
     }
     
+    @Test
+    public void testAllocateId() {
+        assertEquals(3, inventory.allocateId());
+        assertEquals(4, inventory.allocateId());
+        assertEquals(5, inventory.allocateIdBlock(10));
+        assertEquals(15, inventory.getNextAvailableId());
+
+        inventory.addInventoryItem(20, "Chisel", "Wood chisel", 2.99, 5);
+        assertEquals(21, inventory.allocateId());
+    }
+    
     @Test
     public void testGetAllInventoryItems() {
         List<InventoryItem> allItems = inventory.getAllInventoryItems();
@@ -77,6 +374,132 @@ public class InventoryServiceTest {
         assertEquals("Hammer", allItems.get(1).getName());
     }
     
+    @Test
+    public void testGetAllInventoryItemsIsStableSnapshot() {
+        List<InventoryItem> before = inventory.getAllInventoryItems();
+        inventory.addInventoryItem(3, "Wrench", "Adjustable wrench", 6.99, 15);
+        inventory.removeItemById(1);
+
+        assertEquals(2, before.size());
+        assertEquals("Screwdriver", before.get(0).getName());
+
+        List<InventoryItem> after = inventory.getAllInventoryItems();
+        assertEquals(2, after.size());
+        assertEquals("Hammer", after.get(0).getName());
+        assertEquals("Wrench", after.get(1).getName());
+    }
+
+    @Test
+    public void testRemovingManyItemsKeepsListingInOrder() {
+        for (int id = 3; id <= 200; id++) {
+            inventory.addInventoryItem(id, "Part " + id, "Spare part", 1.0, 5);
+        }
+        List<InventoryItem> before = inventory.getAllInventoryItems();
+        for (int id = 1; id <= 200; id += 3) {
+            inventory.removeItemById(id);
+        }
+        inventory.removeItemById(200); // Currently last in the listing
+        inventory.addInventoryItem(500, "Bracket", "Shelf bracket", 2.0, 5);
+
+        assertEquals(200, before.size());
+        for (int i = 0; i < before.size(); i++) {
+            assertEquals(i + 1, before.get(i).getId());
+        }
+
+        List<Integer> expected = new ArrayList<>();
+        for (int id = 1; id < 200; id++) {
+            if (id % 3 != 1) expected.add(id);
+        }
+        expected.add(500);
+        assertEquals(expected, listedIds());
+
+        // Positions are renumbered after each removal, so later removals find the right item
+        inventory.removeItemById(2);
+        inventory.removeItemById(500);
+        expected.remove(Integer.valueOf(2));
+        expected.remove(Integer.valueOf(500));
+        assertEquals(expected, listedIds());
+    }
+
+    private List<Integer> listedIds() {
+        List<Integer> ids = new ArrayList<>();
+        for (InventoryItem item : inventory.getAllInventoryItems()) {
+            ids.add(item.getId());
+        }
+        return ids;
+    }
+    
+    @Test
+    public void testSnapshotSiblingsDoNotShareAppendedSlots() {
+        SnapshotList<Integer> a = SnapshotList.empty();
+        for (int i = 0; i < 32; i++) {
+            a = a.append(i);
+        }
+        SnapshotList<Integer> b = a.append(100);
+        SnapshotList<Integer> replaced = a.with(0, -1);
+        SnapshotList<Integer> c = replaced.append(200);
+
+        assertEquals(100, (int) b.get(32), "An earlier version's sibling must not change");
+        assertEquals(200, (int) c.get(32));
+        assertEquals(0, (int) b.get(0));
+        assertEquals(-1, (int) c.get(0));
+
+        // The same with a partly filled last chunk
+        SnapshotList<Integer> d = b.append(101);
+        SnapshotList<Integer> e = b.with(1, -2).append(201);
+        assertEquals(101, (int) d.get(33));
+        assertEquals(201, (int) e.get(33));
+        assertEquals(1, (int) d.get(1));
+    }
+
+    @Test
+    public void testSnapshotRemoveKeepsOrderAndOlderVersions() {
+        SnapshotList<Integer> a = SnapshotList.empty();
+        for (int i = 0; i < 70; i++) {
+            a = a.append(i);
+        }
+        SnapshotList<Integer> b = a.without(3);   // Later elements move down, across chunks
+        SnapshotList<Integer> c = b.append(100);   // Reuses the freed slot 69
+        SnapshotList<Integer> d = a.without(69);  // Removing the last element
+        SnapshotList<Integer> e = a.append(200);   // A sibling of b that also writes slot 70
+
+        assertEquals(70, a.size());
+        assertEquals(3, (int) a.get(3));
+        assertEquals(69, (int) a.get(69));
+        assertEquals(69, b.size());
+        for (int i = 0; i < b.size(); i++) {
+            assertEquals(i < 3 ? i : i + 1, (int) b.get(i));
+        }
+        assertEquals(100, (int) c.get(69));
+        assertEquals(69, d.size());
+        assertEquals(68, (int) d.get(68));
+        assertEquals(300, (int) d.append(300).get(69));
+        assertEquals(69, (int) a.get(69));
+        assertEquals(200, (int) e.get(70));
+        assertEquals(100, (int) c.get(69));
+    }
+
+    @Test
+    public void testIntIntMapKeepsEntriesThroughGrowthAndRemoval() {
+        IntIntMap map = new IntIntMap();
+        for (int key = 0; key < 1000; key++) {
+            map.put(key, key * 3);
+        }
+        for (int key = 0; key < 1000; key += 2) {
+            map.remove(key); // Includes key 0, which is stored apart from the table
+        }
+        assertEquals(500, map.size());
+        assertFalse(map.replace(10, 1));
+        assertTrue(map.replace(11, 1));
+        for (int key = 1; key < 1000; key += 2) {
+            assertEquals(key == 11 ? 1 : key * 3, map.getOrDefault(key, -1));
+            assertFalse(map.containsKey(key - 1));
+        }
+        int[] sum = new int[1];
+        map.forEach((key, value) -> sum[0] += key);
+        assertEquals(250000, sum[0]);
+    }
+
     @Test
     public void testFindById() {
         InventoryItem item = inventory.findById(2);
@@ -0,0 +1,158 @@
+package services;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+
+import models.InventoryItem;
+
+/**
+ * Keeps track of which inventory items are below their low stock threshold.
+ *
+ * The index is updated every time a quantity changes, so reading the current
+ * low stock items costs time proportional to the number of low stock items
+ * rather than the size of the catalogue. Each item may have its own
+ * threshold; items without one use the default threshold.
+ *
+ * Stock changes are only noted by {@link #markChanged(InventoryItem)}, which does
+ * not take the index lock, so sales and deliveries never wait on the index. The
+ * noted items are re-evaluated the next time the index is read.
+ */
+class LowStockIndex {
+    private int defaultThreshold;
+    private final IntIntMap thresholds;                 // Per-item overrides
+    private final Map<Integer, InventoryItem> lowStock; // Items currently below their threshold
+    private final Map<Integer, InventoryItem> changed;  // Items whose stock changed since the last read
+    private final IntFunction<InventoryItem> currentItems;
+
+    /**
+     * Constructs an empty index.
+     *
+     * @param defaultThreshold the threshold used for items without their own
+     * @param currentItems     looks up an item by ID, returning null once it is removed
+     */
+    LowStockIndex(int defaultThreshold, IntFunction<InventoryItem> currentItems) {
+        this.defaultThreshold = defaultThreshold;
+        this.currentItems = currentItems;
+        this.changed = new ConcurrentHashMap<>();
+        this.thresholds = new IntIntMap();
+        this.lowStock = new LinkedHashMap<>();
+    }
+
+    /**
+     * Re-evaluates an item after its quantity has changed.
+     *
+     * @param item     the item to check
+     * @param quantity the item's new quantity
+     */
+    synchronized void update(InventoryItem item, int quantity) {
+        if (quantity < getThreshold(item.getId())) {
+            lowStock.put(item.getId(), item);
+        } else {
+            lowStock.remove(item.getId());
+        }
+    }
+
+    /**
+     * Notes that an item's stock has changed, without taking the index lock.
+     * The item is re-evaluated when the index is next read.
+     *
+     * @param item the item whose quantity changed
+     */
+    void markChanged(InventoryItem item) {
+        changed.put(item.getId(), item);
+    }
+
+    /**
+     * Re-evaluates the items noted as changed. Must be called with the index locked.
+     */
+    private void applyChanges() {
+        for (InventoryItem item : changed.values()) {
+            // Removed before reading the quantity, so a change made meanwhile is noted again
+            changed.remove(item.getId(), item);
+            if (currentItems.apply(item.getId()) == item) {
+                update(item, item.getQuantity());
+            }
+        }
+    }
+
+    /**
+     * Removes an item and its threshold from the index.
+     *
+     * @param itemId the ID of the removed item
+     */
+    synchronized void remove(int itemId) {
+        changed.remove(itemId);
+        lowStock.remove(itemId);
+        thresholds.remove(itemId);
+    }
+
+    /**
+     * Returns the threshold that applies to an item.
+     *
+     * @param itemId the item ID
+     * @return the item's own threshold, or the default if none is set
+     */
+    synchronized int getThreshold(int itemId) {
+        return thresholds.getOrDefault(itemId, defaultThreshold);
+    }
+
+    /**
+     * Sets the threshold for a single item and re-evaluates it.
+     *
+     * @param item      the item to configure
+     * @param threshold the new threshold
+     */
+    synchronized void setThreshold(InventoryItem item, int threshold) {
+        thresholds.put(item.getId(), threshold);
+        update(item, item.getQuantity());
+    }
+
+    /**
+     * Changes the default threshold and re-evaluates the given items.
+     *
+     * @param threshold the new default threshold
+     * @param items     all items currently in the inventory
+     */
+    synchronized void setDefaultThreshold(int threshold, Iterable<InventoryItem> items) {
+        defaultThreshold = threshold;
+        for (InventoryItem item : items) {
+            update(item, item.getQuantity());
+        }
+    }
+
+    /**
+     * Returns the default threshold.
+     *
+     * @return the default threshold
+     */
+    synchronized int getDefaultThreshold() {
+        return defaultThreshold;
+    }
+
+    /**
+     * Returns the items currently below their threshold with their quantities.
+     *
+     * @return a new map of low stock items to quantities
+     */
+    synchronized Map<InventoryItem, Integer> getLowStockItems() {
+        applyChanges();
+        Map<InventoryItem, Integer> result = new HashMap<>();
+        for (InventoryItem item : lowStock.values()) {
+            result.put(item, item.getQuantity());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of items currently below their threshold.
+     *
+     * @return the low stock item count
+     */
+    synchronized int size() {
+        applyChanges();
+        return lowStock.size();
+    }
+}
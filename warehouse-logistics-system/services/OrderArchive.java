@@ -0,0 +1,202 @@
+package services;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import models.FinancialTransaction;
+import models.Order;
+import models.OrderLine;
+import models.PurchaseTransaction;
+import models.SaleTransaction;
+
+/**
+ * Compact storage for delivered orders that are no longer expected to change.
+ *
+ * Instead of one Order object (plus its lines and transaction) per order, the
+ * archive keeps each field in its own primitive array: IDs, dates as epoch days,
+ * transaction types, totals, and the lines as packed keys and quantities. An
+ * Order object is rebuilt only when an archived order is read. Archived orders
+ * are found by ID through a primitive hash table, and by type and date through
+ * sorted arrays of (date, ID) keys.
+ */
+class OrderArchive {
+    private static final FinancialTransaction.Type[] TYPES = FinancialTransaction.Type.values();
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // One row per order
+    private int size;
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private int[] epochDays = new int[INITIAL_CAPACITY];
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private double[] totals = new double[INITIAL_CAPACITY];
+    private int[] firstLines = new int[INITIAL_CAPACITY + 1]; // Row r's lines are [firstLines[r], firstLines[r + 1])
+
+    // All rows' lines, back to back
+    private int lineCount;
+    private long[] lineKeys = new long[INITIAL_CAPACITY];
+    private int[] lineQuantities = new int[INITIAL_CAPACITY];
+
+    private final IntIntMap rowsById = new IntIntMap();
+    private final long[][] dateKeys = new long[TYPES.length][]; // Per type, sorted (epochDay << 32 | id)
+    private final int[] dateKeyCounts = new int[TYPES.length];
+
+    OrderArchive() {
+        for (int type = 0; type < TYPES.length; type++) {
+            dateKeys[type] = new long[INITIAL_CAPACITY];
+        }
+    }
+
+    /**
+     * Adds delivered orders to the archive.
+     *
+     * @param batch the orders to archive
+     */
+    synchronized void addAll(List<Order> batch) {
+        long[][] newKeys = new long[TYPES.length][batch.size()];
+        int[] newKeyCounts = new int[TYPES.length];
+
+        for (Order order : batch) {
+            ensureRowCapacity(size + 1);
+            List<OrderLine> lines = order.getLines();
+            ensureLineCapacity(lineCount + lines.size());
+
+            int type = order.getTransaction().getType().ordinal();
+            ids[size] = order.getId();
+            epochDays[size] = (int) order.getDate().toEpochDay();
+            types[size] = (byte) type;
+            totals[size] = order.getTotal();
+            for (OrderLine line : lines) {
+                lineKeys[lineCount] = line.getKey();
+                lineQuantities[lineCount] = line.getQuantity();
+                lineCount++;
+            }
+            firstLines[size + 1] = lineCount;
+            rowsById.put(order.getId(), size);
+            newKeys[type][newKeyCounts[type]++] = dateKey(order.getDate().toEpochDay(), order.getId());
+            size++;
+        }
+
+        for (int type = 0; type < TYPES.length; type++) {
+            mergeDateKeys(type, newKeys[type], newKeyCounts[type]);
+        }
+    }
+
+    /**
+     * Merges a batch of new keys into the sorted key array for a type.
+     */
+    private void mergeDateKeys(int type, long[] added, int addedCount) {
+        if (addedCount == 0) return;
+        Arrays.sort(added, 0, addedCount);
+        long[] existing = dateKeys[type];
+        int existingCount = dateKeyCounts[type];
+        long[] merged = new long[Math.max(existing.length, existingCount + addedCount)];
+        int i = 0, j = 0, k = 0;
+        while (i < existingCount && j < addedCount) {
+            merged[k++] = existing[i] <= added[j] ? existing[i++] : added[j++];
+        }
+        while (i < existingCount) merged[k++] = existing[i++];
+        while (j < addedCount) merged[k++] = added[j++];
+        dateKeys[type] = merged;
+        dateKeyCounts[type] = k;
+    }
+
+    /**
+     * Finds an archived order by ID.
+     *
+     * @param id the order ID
+     * @return a rebuilt copy of the order, or null if it is not archived
+     */
+    synchronized Order findById(int id) {
+        int row = rowsById.getOrDefault(id, -1);
+        return row < 0 ? null : toOrder(row);
+    }
+
+    /**
+     * Returns the archived order at a position in archive order.
+     *
+     * @param row the position, from 0 to size() - 1
+     * @return a rebuilt copy of the order
+     */
+    synchronized Order get(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row: " + row + ", Size: " + size);
+        }
+        return toOrder(row);
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Finds archived orders of a type within a range of (date, ID) keys, ordered by key.
+     *
+     * @param type the transaction type, or null for any type
+     * @param low  the lowest key (inclusive)
+     * @param high the highest key (inclusive)
+     * @return rebuilt copies of the matching orders
+     */
+    synchronized List<Order> find(FinancialTransaction.Type type, long low, long high) {
+        List<Order> found = new ArrayList<>();
+        for (int t = 0; t < TYPES.length; t++) {
+            if (type != null && TYPES[t] != type) continue;
+            long[] keys = dateKeys[t];
+            int count = dateKeyCounts[t];
+            int from = lowerBound(keys, count, low);
+            for (int i = from; i < count && keys[i] <= high; i++) {
+                found.add(toOrder(rowsById.getOrDefault((int) keys[i], -1)));
+            }
+        }
+        return found;
+    }
+
+    private static int lowerBound(long[] keys, int count, long key) {
+        int low = 0, high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < key) low = mid + 1; else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Rebuilds a delivered Order from its row.
+     */
+    private Order toOrder(int row) {
+        LocalDate date = LocalDate.ofEpochDay(epochDays[row]);
+        FinancialTransaction transaction = TYPES[types[row]] == FinancialTransaction.Type.PURCHASE
+            ? new PurchaseTransaction(date)
+            : new SaleTransaction(date);
+        transaction.setTotal(totals[row]);
+
+        List<OrderLine> lines = new ArrayList<>(firstLines[row + 1] - firstLines[row]);
+        for (int line = firstLines[row]; line < firstLines[row + 1]; line++) {
+            long key = lineKeys[line];
+            lines.add(new OrderLine((int) (key >>> 32), (int) key, lineQuantities[line]));
+        }
+        return new Order(ids[row], date, totals[row], lines, Order.Status.DELIVERED, transaction);
+    }
+
+    private void ensureRowCapacity(int needed) {
+        if (needed <= ids.length) return;
+        int capacity = Math.max(needed, ids.length * 2);
+        ids = Arrays.copyOf(ids, capacity);
+        epochDays = Arrays.copyOf(epochDays, capacity);
+        types = Arrays.copyOf(types, capacity);
+        totals = Arrays.copyOf(totals, capacity);
+        firstLines = Arrays.copyOf(firstLines, capacity + 1);
+    }
+
+    private void ensureLineCapacity(int needed) {
+        if (needed <= lineKeys.length) return;
+        int capacity = Math.max(needed, lineKeys.length * 2);
+        lineKeys = Arrays.copyOf(lineKeys, capacity);
+        lineQuantities = Arrays.copyOf(lineQuantities, capacity);
+    }
+
+    static long dateKey(long epochDay, int id) {
+        return (epochDay << 32) | (id & 0xFFFFFFFFL);
+    }
+}
@@ -2,10 +2,13 @@ package services;
 
 import models.*;
 
+import java.time.Clock;
 import java.time.LocalDate;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
 
 /**
  * Service responsible for creating orders, validating them, 
@@ -15,6 +18,7 @@ public class OrderCreationService {
     private final InventoryService inventoryService;
     private final SupplierService supplierService;
     private final AtomicInteger nextOrderId = new AtomicInteger(1);
+    private final Clock clock;
 
     /**
      * Constructs an OrderCreationService with dependencies on inventory and supplier services.
@@ -22,14 +26,35 @@ public class OrderCreationService {
     public OrderCreationService(
         InventoryService inventoryService,
         SupplierService supplierService
+    ) {
+        this(inventoryService, supplierService, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Constructs an OrderCreationService that dates orders using the given clock,
+     * for example a {@link VirtualTimeScheduler}'s clock in tests.
+     */
+    public OrderCreationService(
+        InventoryService inventoryService,
+        SupplierService supplierService,
+        Clock clock
     ) {
         this.inventoryService = inventoryService;
         this.supplierService = supplierService;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns today's date according to this service's clock.
+     */
+    LocalDate today() {
+        return LocalDate.now(clock);
     }
 
     /**
      * Creates a new order based on the product list, status, and financial transaction.
      * Validates the order, updates inventory, and tracks supplier orders if applicable.
+     * The text product keys are parsed once here; the rest of the order path works on {@link OrderLine}s.
      *
      * @param products Map of product IDs to quantities.
      * @param status Order status.
@@ -41,168 +66,216 @@ public class OrderCreationService {
         Order.Status status,
         FinancialTransaction transaction
     ) {
-        if (!isOrderValid(products, transaction)) {
+        boolean purchase = transaction.getType() == FinancialTransaction.Type.PURCHASE;
+        List<OrderLine> lines = OrderLine.parseAll(products, purchase);
+        if (lines == null) {
+            throw new IllegalArgumentException("Order validation failed: invalid items or insufficient stock.");
+        }
+        return createOrder(lines, status, transaction);
+    }
+
+    /**
+     * Creates a new order from parsed order lines.
+     * Validates the order, updates inventory, and tracks supplier orders if applicable.
+     * Each line is resolved once into an {@link OrderPlan}, which then serves
+     * validation, pricing, stock reservation and supplier history alike.
+     *
+     * @param lines The ordered items and quantities.
+     * @param status Order status.
+     * @param transaction Associated financial transaction.
+     * @return A new Order instance.
+     */
+    public Order createOrder(
+        List<OrderLine> lines,
+        Order.Status status,
+        FinancialTransaction transaction
+    ) {
+        boolean purchase = transaction.getType() == FinancialTransaction.Type.PURCHASE;
+        OrderPlan plan = OrderPlan.resolve(lines, purchase, inventoryService::findById, supplierService::findSupplierById);
+        if (plan == null) {
             throw new IllegalArgumentException("Order validation failed: invalid items or insufficient stock.");
         }
 
-        int orderId = nextOrderId.getAndIncrement();
-        double total = calculateTransactionTotal(products, transaction);
+        // A sale takes its ID only once its stock is secured, so a rejected sale leaves no gap
+        int orderId = purchase
+            ? nextOrderId.getAndIncrement()
+            : inventoryService.reserveForNewOrder(plan.items, plan.quantities, nextOrderId::getAndIncrement);
+        if (orderId == 0) {
+            throw new IllegalArgumentException("Order validation failed: invalid items or insufficient stock.");
+        }
 
-        transaction.setTotal(total);
+        transaction.setTotal(plan.total);
 
         Order order = new Order(
             orderId,
-            LocalDate.now(),
-            total,
-            products,
+            today(),
+            plan.total,
+            lines,
             status,
             transaction
         );
 
-        applyStockChanges(order);
-
-        if (transaction.getType() == FinancialTransaction.Type.PURCHASE) {
-            updateSupplierOrderHistories(order);
+        if (purchase) {
+            updateSupplierOrderHistories(order, plan);
         }
 
         return order;
     }
 
     /**
-     * Validates a proposed order depending on whether it's a sale or purchase.
+     * Creates a batch of orders in one validation, pricing and stock pass.
+     *
+     * Every item and supplier item referenced by the batch is looked up once.
+     * Stock for all sale orders is reserved under a single acquisition of the
+     * inventory locks. Order IDs are then allocated as one block, to the
+     * accepted orders only.
      *
-     * @param products Map of product identifiers to quantities.
-     * @param transaction The financial transaction being validated.
-     * @return True if the order is valid, otherwise false.
+     * With partial success, each order stands alone: invalid or short orders are
+     * rejected and the rest are created. Without it, the batch is all or nothing:
+     * if any order is rejected, no order is created and no stock changes.
+     *
+     * @param requests The orders to create.
+     * @param partialSuccess Whether valid orders should be created when others fail.
+     * @return One result per request, in request order.
      */
-    private boolean isOrderValid(Map<String, Integer> products, FinancialTransaction transaction) {
-        if (transaction.getType() == FinancialTransaction.Type.SALE) {
-            for (Map.Entry<String, Integer> entry : products.entrySet()) {
-                try {
-                    int itemId = Integer.parseInt(entry.getKey());
-                    InventoryItem item = inventoryService.findById(itemId);
-                    if (item == null || item.getQuantity() < entry.getValue()) {
-                        return false;
-                    }
-                } catch (NumberFormatException e) {
-                    return false;
-                }
+    public List<OrderResult> createOrders(List<OrderRequest> requests, boolean partialSuccess) {
+        int count = requests.size();
+        OrderResult[] results = new OrderResult[count];
+        OrderPlan[] plans = new OrderPlan[count];
+        Map<Integer, InventoryItem> items = new HashMap<>();
+        Map<Integer, Supplier> suppliers = new HashMap<>();
+        IntFunction<InventoryItem> findItem = id -> items.computeIfAbsent(id, inventoryService::findById);
+        IntFunction<Supplier> findSupplier = id -> suppliers.computeIfAbsent(id, supplierService::findSupplierById);
+        boolean anyRejected = false;
+
+        // Resolve, validate and price every order, looking each item up once per batch
+        for (int i = 0; i < count; i++) {
+            OrderRequest request = requests.get(i);
+            plans[i] = request.getLines() == null
+                ? null
+                : OrderPlan.resolve(request.getLines(), request.isPurchase(), findItem, findSupplier);
+            if (plans[i] == null) {
+                results[i] = OrderResult.failure(i, "Order validation failed: invalid items.");
+                anyRejected = true;
             }
-        } else if (transaction.getType() == FinancialTransaction.Type.PURCHASE) {
-            for (Map.Entry<String, Integer> entry : products.entrySet()) {
-                String[] parts = entry.getKey().split(":");
-                if (parts.length != 2) return false;
-
-                try {
-                    int supplierId = Integer.parseInt(parts[0]);
-                    int supplierItemId = Integer.parseInt(parts[1]);
+        }
+        if (anyRejected && !partialSuccess) {
+            return rejectRemaining(results);
+        }
 
-                    Supplier supplier = supplierService.findSupplierById(supplierId);
-                    if (supplier == null || supplier.getItemById(supplierItemId) == null) {
-                        return false;
-                    }
-                } catch (NumberFormatException e) {
-                    return false;
+        // Reserve stock for all sales together
+        int[] sales = new int[count];
+        int saleCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (results[i] == null && !requests.get(i).isPurchase()) sales[saleCount++] = i;
+        }
+        InventoryItem[][] saleItems = new InventoryItem[saleCount][];
+        int[][] saleQuantities = new int[saleCount][];
+        for (int s = 0; s < saleCount; s++) {
+            saleItems[s] = plans[sales[s]].items;
+            saleQuantities[s] = plans[sales[s]].quantities;
+        }
+        int[] orderIds = new int[count];
+        boolean[] reserved = inventoryService.reserveEach(saleItems, saleQuantities, saleReserved -> {
+            // IDs are taken only once it is known which orders go ahead, so rejected orders leave no gap
+            int[] saleOrderIds = new int[saleReserved.length];
+            for (int s = 0; s < saleReserved.length; s++) {
+                if (!saleReserved[s]) {
+                    results[sales[s]] = OrderResult.failure(sales[s], "Order validation failed: insufficient stock.");
                 }
             }
+            if (partialSuccess || countRejected(results) == 0) {
+                int nextId = nextOrderId.getAndAdd(count - countRejected(results));
+                for (int i = 0; i < count; i++) {
+                    if (results[i] == null) orderIds[i] = nextId++;
+                }
+                for (int s = 0; s < saleReserved.length; s++) {
+                    saleOrderIds[s] = orderIds[sales[s]];
+                }
+            }
+            return saleOrderIds;
+        });
+        if (!partialSuccess && countRejected(results) > 0) {
+            // Put back the stock taken for the sales that did fit; no order was numbered
+            for (int s = 0; s < saleCount; s++) {
+                if (!reserved[s]) continue;
+                for (int line = 0; line < saleItems[s].length; line++) {
+                    inventoryService.addStock(saleItems[s][line].getId(), saleQuantities[s][line],
+                        StockChangeCause.RELEASE, 0);
+                }
+            }
+            return rejectRemaining(results);
         }
-        return true;
-    }
 
-    /**
-     * Calculates the total cost of a transaction based on the products involved.
-     *
-     * @param products Map of product identifiers to quantities.
-     * @param transaction The associated financial transaction.
-     * @return The total cost as a double.
-     */
-    private double calculateTransactionTotal(Map<String, Integer> products, FinancialTransaction transaction) {
-        double total = 0.0;
-
-        for (Map.Entry<String, Integer> entry : products.entrySet()) {
-            String key = entry.getKey();
-            int quantity = entry.getValue();
-
-            if (transaction.getType() == FinancialTransaction.Type.SALE) {
-                int itemId = Integer.parseInt(key);
-                InventoryItem item = inventoryService.findById(itemId);
-                if (item != null) {
-                    total += item.getPrice() * quantity;
-                }
-            } else if (transaction.getType() == FinancialTransaction.Type.PURCHASE) {
-                total += getPurchaseEntryTotal(key, quantity);
+        // Commit the accepted orders
+        LocalDate today = today();
+        for (int i = 0; i < count; i++) {
+            if (results[i] != null) continue;
+            OrderRequest request = requests.get(i);
+            FinancialTransaction transaction = request.isPurchase()
+                ? new PurchaseTransaction(today)
+                : new SaleTransaction(today);
+            transaction.setTotal(plans[i].total);
+            Order order = new Order(
+                orderIds[i],
+                today,
+                plans[i].total,
+                request.getLines(),
+                request.isPurchase() ? Order.Status.PROCESSED : Order.Status.DELIVERED,
+                transaction
+            );
+            if (request.isPurchase()) {
+                updateSupplierOrderHistories(order, plans[i]);
             }
+            results[i] = OrderResult.success(i, order);
         }
+        return List.of(results);
+    }
 
-        return total;
+    private static int countRejected(OrderResult[] results) {
+        int rejected = 0;
+        for (OrderResult result : results) {
+            if (result != null) rejected++;
+        }
+        return rejected;
     }
 
     /**
-     * Applies stock quantity changes for a given order if it is a sale.
-     *
-     * @param order The order whose items affect inventory.
+     * Fails every order of an all-or-nothing batch that has not already failed.
      */
-    private void applyStockChanges(Order order) {
-        if (order.getTransaction().getType() == FinancialTransaction.Type.SALE) {
-            for (Map.Entry<String, Integer> entry : order.getItems().entrySet()) {
-                int itemId = Integer.parseInt(entry.getKey());
-                InventoryItem item = inventoryService.findById(itemId);
-                if (item != null) {
-                    item.setQuantity(item.getQuantity() - entry.getValue());
-                }
+    private static List<OrderResult> rejectRemaining(OrderResult[] results) {
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                results[i] = OrderResult.failure(i, "Batch rejected: another order in the batch failed.");
             }
         }
+        return List.of(results);
     }
 
     /**
-     * Retrieves the supplier item from a key of the format "supplierId:itemId".
+     * Retrieves the supplier item a purchase line refers to.
      *
-     * @param key The compound identifier key.
+     * @param line The purchase line.
      * @return The SupplierItem instance or null if not found.
      */
-    private SupplierItem getSupplierItemFromKey(String key) {
-        String[] parts = key.split(":");
-        if (parts.length != 2) return null;
-
-        try {
-            int supplierId = Integer.parseInt(parts[0]);
-            int supplierItemId = Integer.parseInt(parts[1]);
-
-            Supplier supplier = supplierService.findSupplierById(supplierId);
-            if (supplier == null) return null;
+    private SupplierItem getSupplierItem(OrderLine line) {
+        Supplier supplier = supplierService.findSupplierById(line.getSupplierId());
+        if (supplier == null) return null;
 
-            return supplier.getItemById(supplierItemId);
-        } catch (NumberFormatException e) {
-            return null;
-        }
-    }
-
-    /**
-     * Calculates the total cost of a single purchase entry.
-     *
-     * @param key The supplier item key.
-     * @param quantity Quantity ordered.
-     * @return Total cost for the item.
-     */
-    private double getPurchaseEntryTotal(String key, int quantity) {
-        SupplierItem supplierItem = getSupplierItemFromKey(key);
-        return (supplierItem != null) ? supplierItem.getPrice() * quantity : 0.0;
+        return supplier.getItemById(line.getItemId());
     }
 
     /**
      * Updates the stock levels for a purchased item.
      *
-     * @param key The supplier item key.
-     * @param quantity Quantity received.
+     * @param line The purchase line received.
+     * @param orderId The ID of the delivered order.
      */
-    private void updatePurchaseStock(String key, int quantity) {
-        SupplierItem supplierItem = getSupplierItemFromKey(key);
+    private void updatePurchaseStock(OrderLine line, int orderId) {
+        SupplierItem supplierItem = getSupplierItem(line);
         if (supplierItem == null) return;
 
-        InventoryItem stockItem = inventoryService.findById(supplierItem.getId());
-        if (stockItem != null) {
-            stockItem.setQuantity(stockItem.getQuantity() + quantity);
-        }
+        inventoryService.addStock(supplierItem.getId(), line.getQuantity(), StockChangeCause.DELIVERY, orderId);
     }
 
     /**
@@ -215,51 +288,38 @@ public class OrderCreationService {
         return () -> {
             if (order.getTransaction().getType() == FinancialTransaction.Type.PURCHASE &&
                 order.getStatus() == Order.Status.DELIVERED) {
-                for (Map.Entry<String, Integer> entry : order.getItems().entrySet()) {
-                    updatePurchaseStock(entry.getKey(), entry.getValue());
+                for (OrderLine line : order.getLines()) {
+                    updatePurchaseStock(line, order.getId());
                 }
             }
         };
     }
 
     /**
-     * Records a new order in the supplier's order history.
+     * Records a new order in the order history of each supplier it buys from.
+     * Suppliers and prices are taken from the order's plan, as resolved when it was created.
      *
      * @param order The purchase order to record.
+     * @param plan The resolved plan the order was created from.
      */
-    private void updateSupplierOrderHistories(Order order) {
-        Map<Integer, Map<Integer, Integer>> supplierItemGroups = new HashMap<>();
-
-        for (Map.Entry<String, Integer> entry : order.getItems().entrySet()) {
-            String[] parts = entry.getKey().split(":");
-            int supplierId = Integer.parseInt(parts[0]);
-            int supplierItemId = Integer.parseInt(parts[1]);
-            int quantity = entry.getValue();
+    private void updateSupplierOrderHistories(Order order, OrderPlan plan) {
+        Map<Supplier, Map<Integer, Integer>> supplierItemGroups = new HashMap<>();
+        Map<Supplier, Double> supplierTotals = new HashMap<>();
 
+        for (int i = 0; i < plan.quantities.length; i++) {
+            Supplier supplier = plan.suppliers[i];
             supplierItemGroups
-                .computeIfAbsent(supplierId, k -> new HashMap<>())
-                .put(supplierItemId, quantity);
+                .computeIfAbsent(supplier, k -> new HashMap<>())
+                .merge(plan.supplierItems[i].getId(), plan.quantities[i], Integer::sum);
+            supplierTotals.merge(supplier, plan.unitPrices[i] * plan.quantities[i], Double::sum);
         }
 
-        for (Map.Entry<Integer, Map<Integer, Integer>> entry : supplierItemGroups.entrySet()) {
-            int supplierId = entry.getKey();
-            Supplier supplier = supplierService.findSupplierById(supplierId);
-            if (supplier == null) continue;
-
-            Map<Integer, Integer> items = entry.getValue();
-            double total = 0.0;
-            for (Map.Entry<Integer, Integer> itemEntry : items.entrySet()) {
-                SupplierItem item = supplier.getItemById(itemEntry.getKey());
-                if (item != null) {
-                    total += itemEntry.getValue() * item.getPrice();
-                }
-            }
-
-            supplier.addOrderRecord(new SupplierOrderRecord(
+        for (Map.Entry<Supplier, Map<Integer, Integer>> entry : supplierItemGroups.entrySet()) {
+            entry.getKey().addOrderRecord(new SupplierOrderRecord(
                 order.getId(),
                 order.getTransaction().getTransactionDate(),
-                total,
-                items
+                supplierTotals.get(entry.getKey()),
+                entry.getValue()
             ));
         }
     }
@@ -0,0 +1,96 @@
+package services;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import models.Order;
+
+/**
+ * Tracks an order created with {@link OrderService#createOrderAsync(Map, boolean)}.
+ *
+ * Each stage of the order's life has its own future, so callers can chain work
+ * onto it instead of polling the order:
+ * <ul>
+ *   <li>{@link #accepted()} completes once the order has been validated and created,
+ *       or completes exceptionally if it was rejected.</li>
+ *   <li>{@link #statusReached(Order.Status)} completes once the order reaches that
+ *       status or a later one. Sales are created as DELIVERED, so all of theirs
+ *       complete on acceptance.</li>
+ *   <li>{@link #stockApplied()} completes once the order's stock change has been
+ *       made: at acceptance for a sale, after delivery for a purchase.</li>
+ * </ul>
+ * The returned futures are copies, so completing one does not affect the handle.
+ */
+public class OrderHandle {
+    private static final Order.Status[] STATUSES = Order.Status.values();
+
+    private final CompletableFuture<Order> accepted = new CompletableFuture<>();
+    private final Map<Order.Status, CompletableFuture<Order>> statuses = new EnumMap<>(Order.Status.class);
+    private final CompletableFuture<Order> stockApplied = new CompletableFuture<>();
+
+    OrderHandle() {
+        for (Order.Status status : STATUSES) {
+            statuses.put(status, new CompletableFuture<>());
+        }
+    }
+
+    /**
+     * Returns a future completed with the order once it has been created.
+     */
+    public CompletableFuture<Order> accepted() {
+        return accepted.copy();
+    }
+
+    /**
+     * Returns a future completed with the order once it reaches the given status or a later one.
+     *
+     * @param status The status to wait for.
+     */
+    public CompletableFuture<Order> statusReached(Order.Status status) {
+        return statuses.get(status).copy();
+    }
+
+    /**
+     * Returns a future completed with the order once it has been delivered.
+     */
+    public CompletableFuture<Order> delivered() {
+        return statusReached(Order.Status.DELIVERED);
+    }
+
+    /**
+     * Returns a future completed with the order once its stock change has been applied.
+     */
+    public CompletableFuture<Order> stockApplied() {
+        return stockApplied.copy();
+    }
+
+    void accept(Order order) {
+        accepted.complete(order);
+        statusChanged(order, order.getStatus());
+    }
+
+    /**
+     * Completes the futures for the given status and every earlier one.
+     */
+    void statusChanged(Order order, Order.Status status) {
+        for (int i = 0; i <= status.ordinal(); i++) {
+            statuses.get(STATUSES[i]).complete(order);
+        }
+    }
+
+    void applyStock(Order order) {
+        stockApplied.complete(order);
+    }
+
+    /**
+     * Fails every future because the order could not be created.
+     */
+    void reject(Throwable cause) {
+        accepted.completeExceptionally(cause);
+        for (CompletableFuture<Order> future : statuses.values()) {
+            future.completeExceptionally(cause);
+        }
+        stockApplied.completeExceptionally(cause);
+    }
+}
@@ -0,0 +1,18 @@
+package services;
+
+/**
+ * Callback that numbers a batch of orders once their stock has been reserved.
+ * See {@link InventoryService#reserveEach(models.InventoryItem[][], int[][], OrderIdAssigner)}.
+ */
+@FunctionalInterface
+public interface OrderIdAssigner {
+
+    /**
+     * Chooses the ID of each order. Called while the item locks are still held,
+     * so it should only hand out IDs.
+     *
+     * @param reserved for each order, whether all its lines were reserved
+     * @return the ID of each order, recorded in its stock events, or 0 for none
+     */
+    int[] assign(boolean[] reserved);
+}
@@ -0,0 +1,293 @@
+package services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accepts orders from any number of threads and creates them on a small pool of workers.
+ *
+ * Producers put orders on a bounded queue; when it is full, {@link #submit(OrderRequest)}
+ * waits for space, so a burst of orders slows its producers down instead of
+ * exhausting memory. Each worker takes whatever orders are waiting, up to a batch
+ * limit, and creates them with {@link OrderService#createOrders(List, boolean)},
+ * so a busy pipeline validates and commits orders in groups. Orders in a group
+ * succeed or fail independently.
+ *
+ * Counters for throughput and queue-to-completion latency are kept without locking.
+ */
+public class OrderIntakePipeline {
+    public static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+    public static final int DEFAULT_WORKERS = 4;
+    private static final int MAX_BATCH = 256;
+    private static final long POLL_MILLIS = 100; // How often idle workers check for shutdown
+
+    /**
+     * An order waiting in the queue.
+     */
+    private static final class Submission {
+        final OrderRequest request;
+        final CompletableFuture<OrderResult> result = new CompletableFuture<>();
+        final long submittedNanos = System.nanoTime();
+
+        Submission(OrderRequest request) {
+            this.request = request;
+        }
+    }
+
+    private final OrderService orderService;
+    private final BlockingQueue<Submission> queue;
+    private final Thread[] workers;
+    private volatile boolean accepting = true;
+    private final long startNanos = System.nanoTime();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+    private final LongAccumulator maxLatencyNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Constructs a pipeline with the default queue size and number of workers.
+     *
+     * @param orderService The service that creates the orders.
+     */
+    public OrderIntakePipeline(OrderService orderService) {
+        this(orderService, DEFAULT_QUEUE_CAPACITY, DEFAULT_WORKERS);
+    }
+
+    /**
+     * Constructs a pipeline and starts its workers.
+     *
+     * @param orderService The service that creates the orders.
+     * @param queueCapacity The number of orders that can wait before producers are held back.
+     * @param workerCount The number of worker threads.
+     */
+    public OrderIntakePipeline(OrderService orderService, int queueCapacity, int workerCount) {
+        if (queueCapacity <= 0 || workerCount <= 0) {
+            throw new IllegalArgumentException("Queue capacity and worker count must be positive.");
+        }
+        this.orderService = orderService;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.workers = new Thread[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Thread(this::runWorker, "order-intake-" + (i + 1));
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Queues an order, waiting for space if the queue is full.
+     *
+     * @param request The order to create.
+     * @return A future completed with the result once a worker has processed the order.
+     * @throws IllegalStateException if the pipeline has been shut down.
+     * @throws InterruptedException if interrupted while waiting for space.
+     */
+    public CompletableFuture<OrderResult> submit(OrderRequest request) throws InterruptedException {
+        Submission submission = new Submission(request);
+        if (!accepting) {
+            throw new IllegalStateException("Order intake pipeline has been shut down.");
+        }
+        queue.put(submission);
+        withdrawIfShutDown(submission);
+        submitted.increment();
+        return submission.result;
+    }
+
+    /**
+     * Queues an order if there is space within the given time.
+     *
+     * @param request The order to create.
+     * @param timeout How long to wait for space.
+     * @param unit The unit of the timeout.
+     * @return A future for the result, or null if the queue stayed full.
+     * @throws IllegalStateException if the pipeline has been shut down.
+     * @throws InterruptedException if interrupted while waiting for space.
+     */
+    public CompletableFuture<OrderResult> trySubmit(OrderRequest request, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        Submission submission = new Submission(request);
+        if (!accepting) {
+            throw new IllegalStateException("Order intake pipeline has been shut down.");
+        }
+        if (!queue.offer(submission, timeout, unit)) {
+            return null;
+        }
+        withdrawIfShutDown(submission);
+        submitted.increment();
+        return submission.result;
+    }
+
+    /**
+     * Takes back an order queued while the pipeline was shutting down. A producer
+     * that waited for space can queue its order after shutdown has cleared the
+     * queue for the last time, and nothing would then complete the order. If a
+     * worker or shutdown already took the order, it will be completed as usual.
+     *
+     * @throws IllegalStateException if the order was taken back.
+     */
+    private void withdrawIfShutDown(Submission submission) {
+        if (!accepting && queue.remove(submission)) {
+            throw new IllegalStateException("Order intake pipeline has been shut down.");
+        }
+    }
+
+    /**
+     * Queues an order and waits until it has been processed.
+     *
+     * @param request The order to create.
+     * @return The result of creating the order.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public OrderResult submitAndAwait(OrderRequest request) throws InterruptedException {
+        try {
+            return submit(request).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Order processing failed.", e.getCause());
+        }
+    }
+
+    private void runWorker() {
+        List<Submission> batch = new ArrayList<>(MAX_BATCH);
+        List<OrderRequest> requests = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            Submission first;
+            try {
+                first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (first == null) {
+                if (!accepting && queue.isEmpty()) return;
+                continue;
+            }
+
+            batch.add(first);
+            queue.drainTo(batch, MAX_BATCH - 1);
+            for (Submission submission : batch) {
+                requests.add(submission.request);
+            }
+            process(batch, requests);
+            batch.clear();
+            requests.clear();
+        }
+    }
+
+    private void process(List<Submission> batch, List<OrderRequest> requests) {
+        List<OrderResult> results;
+        try {
+            results = orderService.createOrders(requests, true);
+        } catch (RuntimeException e) {
+            for (Submission submission : batch) {
+                submission.result.completeExceptionally(e);
+            }
+            rejected.add(batch.size());
+            return;
+        }
+
+        batches.increment();
+        long now = System.nanoTime();
+        for (int i = 0; i < batch.size(); i++) {
+            Submission submission = batch.get(i);
+            OrderResult result = results.get(i);
+            // Report the index the producer knows about: its order is a batch of one
+            result = result.isSuccess()
+                ? OrderResult.success(0, result.getOrder())
+                : OrderResult.failure(0, result.getError());
+            (result.isSuccess() ? created : rejected).increment();
+            long latency = now - submission.submittedNanos;
+            totalLatencyNanos.add(latency);
+            maxLatencyNanos.accumulate(latency);
+            submission.result.complete(result);
+        }
+    }
+
+    /**
+     * Stops accepting orders, lets the workers finish the orders already queued,
+     * and waits for them to stop.
+     *
+     * @param timeout The longest time to wait.
+     * @param unit The unit of the timeout.
+     * @return True if every worker stopped within the timeout.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        accepting = false;
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Thread worker : workers) {
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMillis > 0) {
+                worker.join(remainingMillis);
+            }
+            if (worker.isAlive()) return false;
+        }
+        // Fail anything queued by a producer that raced with the shutdown
+        List<Submission> stranded = new ArrayList<>();
+        queue.drainTo(stranded);
+        for (Submission submission : stranded) {
+            submission.result.completeExceptionally(
+                new IllegalStateException("Order intake pipeline has been shut down."));
+        }
+        return true;
+    }
+
+    // Metrics
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    public long getCreatedCount() {
+        return created.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Returns the number of orders waiting for a worker.
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Returns the average number of orders each worker batch contained.
+     */
+    public double getAverageBatchSize() {
+        long batchCount = batches.sum();
+        return batchCount == 0 ? 0 : (double) (created.sum() + rejected.sum()) / batchCount;
+    }
+
+    /**
+     * Returns the processed orders per second since the pipeline started.
+     */
+    public double getOrdersPerSecond() {
+        double seconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+        return seconds <= 0 ? 0 : (created.sum() + rejected.sum()) / seconds;
+    }
+
+    /**
+     * Returns the average time from submission to completion, in milliseconds.
+     */
+    public double getAverageLatencyMillis() {
+        long processed = created.sum() + rejected.sum();
+        return processed == 0 ? 0 : totalLatencyNanos.sum() / 1_000_000.0 / processed;
+    }
+
+    /**
+     * Returns the longest time from submission to completion, in milliseconds.
+     */
+    public double getMaxLatencyMillis() {
+        return maxLatencyNanos.get() / 1_000_000.0;
+    }
+}
@@ -0,0 +1,78 @@
+package services;
+
+import java.util.List;
+import java.util.function.IntFunction;
+
+import models.InventoryItem;
+import models.OrderLine;
+import models.Supplier;
+import models.SupplierItem;
+
+/**
+ * An order whose lines have been resolved, validated and priced in one pass.
+ *
+ * Each line is looked up once, and the plan keeps direct references to the
+ * inventory items (for a sale) or suppliers and supplier items (for a purchase)
+ * together with the unit price used. Validation, totals, stock reservation and
+ * supplier history are then all taken from the plan, with no further lookups.
+ */
+final class OrderPlan {
+    final InventoryItem[] items;         // Sale lines only
+    final Supplier[] suppliers;          // Purchase lines only
+    final SupplierItem[] supplierItems;  // Purchase lines only
+    final int[] quantities;
+    final double[] unitPrices;
+    final double total;
+
+    private OrderPlan(InventoryItem[] items, Supplier[] suppliers, SupplierItem[] supplierItems,
+                      int[] quantities, double[] unitPrices, double total) {
+        this.items = items;
+        this.suppliers = suppliers;
+        this.supplierItems = supplierItems;
+        this.quantities = quantities;
+        this.unitPrices = unitPrices;
+        this.total = total;
+    }
+
+    /**
+     * Resolves and validates every line of an order.
+     *
+     * @param lines         the order lines
+     * @param purchase      true for a purchase order, false for a sale
+     * @param findItem      looks up an inventory item by ID, returning null if missing
+     * @param findSupplier  looks up a supplier by ID, returning null if missing
+     * @return the plan, or null if any line refers to a missing item or has a quantity that is not positive
+     */
+    static OrderPlan resolve(List<OrderLine> lines, boolean purchase,
+                             IntFunction<InventoryItem> findItem, IntFunction<Supplier> findSupplier) {
+        int count = lines.size();
+        InventoryItem[] items = purchase ? null : new InventoryItem[count];
+        Supplier[] suppliers = purchase ? new Supplier[count] : null;
+        SupplierItem[] supplierItems = purchase ? new SupplierItem[count] : null;
+        int[] quantities = new int[count];
+        double[] unitPrices = new double[count];
+        double total = 0.0;
+
+        for (int i = 0; i < count; i++) {
+            OrderLine line = lines.get(i);
+            if (line.getQuantity() <= 0) return null;
+            if (purchase) {
+                Supplier supplier = findSupplier.apply(line.getSupplierId());
+                SupplierItem supplierItem = supplier == null ? null : supplier.getItemById(line.getItemId());
+                if (supplierItem == null) return null;
+                suppliers[i] = supplier;
+                supplierItems[i] = supplierItem;
+                unitPrices[i] = supplierItem.getPrice();
+            } else {
+                if (line.isPurchase()) return null;
+                InventoryItem item = findItem.apply(line.getItemId());
+                if (item == null) return null;
+                items[i] = item;
+                unitPrices[i] = item.getPrice();
+            }
+            quantities[i] = line.getQuantity();
+            total += unitPrices[i] * quantities[i];
+        }
+        return new OrderPlan(items, suppliers, supplierItems, quantities, unitPrices, total);
+    }
+}
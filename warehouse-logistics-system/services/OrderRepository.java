@@ -0,0 +1,282 @@
+package services;
+
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.RandomAccess;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import models.FinancialTransaction;
+import models.Order;
+import models.OrderStatusListener;
+import models.SnapshotList;
+
+/**
+ * Stores orders for {@link OrderService}.
+ *
+ * Orders are kept in a concurrent map keyed by ID for constant-time lookup,
+ * and in a {@link SnapshotList} that preserves insertion order for listing.
+ * Reads of live orders take no lock, so they are safe while the delivery
+ * scheduler is changing order statuses on other threads.
+ *
+ * Each order is also indexed by transaction type and current status, in a
+ * date-ordered skip list per (type, status) pair. A listener on every order
+ * moves it between status lists as it progresses, so queries such as "purchases
+ * in transit this week" visit only the matching orders.
+ *
+ * Delivered orders past a given age can be moved into an {@link OrderArchive},
+ * which stores them far more compactly. Lookups, listings and queries include
+ * archived orders, rebuilt on demand.
+ */
+class OrderRepository {
+    private static final Order.Status[] STATUSES = Order.Status.values();
+
+    private final Map<Integer, Order> ordersById = new ConcurrentHashMap<>();
+    private final OrderArchive archive = new OrderArchive();
+    private volatile OrderList orders = new OrderList(archive, 0, SnapshotList.empty()); // Archived, then live orders
+    // Type -> status -> orders keyed by (date, id); the maps themselves never change after construction
+    private final Map<FinancialTransaction.Type, Map<Order.Status, ConcurrentSkipListMap<Long, Order>>> index;
+    private final OrderStatusListener statusListener;
+
+    OrderRepository() {
+        this((order, oldStatus, newStatus) -> { });
+    }
+
+    /**
+     * Constructs a repository that also reports every status change of a stored order.
+     *
+     * @param observer called after the indexes have been updated for a status change
+     */
+    OrderRepository(OrderStatusListener observer) {
+        index = new EnumMap<>(FinancialTransaction.Type.class);
+        for (FinancialTransaction.Type type : FinancialTransaction.Type.values()) {
+            Map<Order.Status, ConcurrentSkipListMap<Long, Order>> byStatus = new EnumMap<>(Order.Status.class);
+            for (Order.Status status : STATUSES) {
+                byStatus.put(status, new ConcurrentSkipListMap<>());
+            }
+            index.put(type, byStatus);
+        }
+        statusListener = (order, oldStatus, newStatus) -> {
+            reindexStatus(order);
+            observer.onStatusChanged(order, oldStatus, newStatus);
+        };
+    }
+
+    /**
+     * Moves an order into the status list for its current status and out of the
+     * others. Notifications can arrive out of order, so the order's own status is
+     * used rather than the one reported, and the move is repeated if the status
+     * changes meanwhile.
+     */
+    private void reindexStatus(Order order) {
+        long key = dateKey(order);
+        Order.Status status;
+        do {
+            status = order.getStatus();
+            // Add before removing so the order is never missing from every list
+            statusIndex(order, status).put(key, order);
+            for (Order.Status other : STATUSES) {
+                if (other != status) {
+                    statusIndex(order, other).remove(key, order);
+                }
+            }
+        } while (order.getStatus() != status);
+    }
+
+    /**
+     * Adds a new order.
+     *
+     * @param order the order to store
+     * @throws IllegalArgumentException if an order with the same ID is already stored
+     */
+    synchronized void add(Order order) {
+        if (ordersById.putIfAbsent(order.getId(), order) != null) {
+            throw new IllegalArgumentException("Order with ID " + order.getId() + " already exists.");
+        }
+        insert(order);
+    }
+
+    /**
+     * Adds a batch of new orders in one step.
+     *
+     * @param batch the orders to store
+     * @throws IllegalArgumentException if any order ID is already stored; nothing is added
+     */
+    synchronized void addAll(List<Order> batch) {
+        for (Order order : batch) {
+            if (ordersById.containsKey(order.getId())) {
+                throw new IllegalArgumentException("Order with ID " + order.getId() + " already exists.");
+            }
+        }
+        for (Order order : batch) {
+            ordersById.put(order.getId(), order);
+            insert(order);
+        }
+    }
+
+    /**
+     * Appends a new order to the list and the status index. Caller holds the repository lock.
+     */
+    private void insert(Order order) {
+        orders = orders.withLive(orders.live.append(order));
+        synchronized (order) {
+            // Holding the order's lock keeps a concurrent status change from being missed
+            statusIndex(order, order.getStatus()).put(dateKey(order), order);
+            order.setStatusListener(statusListener);
+        }
+    }
+
+    /**
+     * Finds an order by its ID.
+     *
+     * @param id the order ID
+     * @return the order, or null if not found
+     */
+    Order findById(int id) {
+        Order order = ordersById.get(id);
+        return order != null ? order : archive.findById(id);
+    }
+
+    /**
+     * Returns every order as an immutable snapshot: archived orders in the order they
+     * were archived, followed by the remaining orders in creation order.
+     *
+     * @return the orders
+     */
+    List<Order> getAll() {
+        return orders;
+    }
+
+    /**
+     * Moves delivered orders dated before the given day into the archive.
+     *
+     * @param before orders dated before this day are archived
+     * @return the number of orders archived
+     */
+    synchronized int archiveDelivered(LocalDate before) {
+        long cutoff = before.toEpochDay() << 32;
+        List<Order> batch = new ArrayList<>();
+        for (Map<Order.Status, ConcurrentSkipListMap<Long, Order>> byStatus : index.values()) {
+            batch.addAll(byStatus.get(Order.Status.DELIVERED).headMap(cutoff).values());
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        // Archive first, so a concurrent lookup finds each order in one place or the other
+        archive.addAll(batch);
+        for (Order order : batch) {
+            order.setStatusListener(null);
+            ordersById.remove(order.getId(), order);
+            statusIndex(order, Order.Status.DELIVERED).remove(dateKey(order), order);
+        }
+        SnapshotList<Order> live = orders.live.without(order -> ordersById.get(order.getId()) != order);
+        orders = new OrderList(archive, orders.archivedCount + batch.size(), live);
+        return batch.size();
+    }
+
+    /**
+     * Returns the number of orders held in the archive.
+     */
+    int getArchivedCount() {
+        return orders.archivedCount;
+    }
+
+    /**
+     * Finds orders matching a type, a status and a date range, ordered by date and then ID.
+     * Only the matching orders are visited.
+     *
+     * @param type   the transaction type, or null for any type
+     * @param status the current status, or null for any status
+     * @param from   the earliest order date (inclusive), or null for no lower bound
+     * @param to     the latest order date (inclusive), or null for no upper bound
+     * @return the matching orders
+     */
+    List<Order> find(FinancialTransaction.Type type, Order.Status status, LocalDate from, LocalDate to) {
+        long low = from == null ? Long.MIN_VALUE : from.toEpochDay() << 32;
+        long high = to == null ? Long.MAX_VALUE : ((to.toEpochDay() + 1) << 32) - 1;
+        if (low > high) {
+            return new ArrayList<>();
+        }
+
+        List<NavigableMap<Long, Order>> ranges = new ArrayList<>();
+        if (status == null || status == Order.Status.DELIVERED) {
+            NavigableMap<Long, Order> archived = new TreeMap<>();
+            for (Order order : archive.find(type, low, high)) {
+                archived.put(dateKey(order), order);
+            }
+            if (!archived.isEmpty()) ranges.add(archived);
+        }
+        for (Map.Entry<FinancialTransaction.Type, Map<Order.Status, ConcurrentSkipListMap<Long, Order>>> byType : index.entrySet()) {
+            if (type != null && byType.getKey() != type) continue;
+            for (Order.Status candidate : STATUSES) {
+                if (status != null && candidate != status) continue;
+                ranges.add(byType.getValue().get(candidate).subMap(low, true, high, true));
+            }
+        }
+
+        if (ranges.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (ranges.size() == 1) {
+            return new ArrayList<>(ranges.get(0).values());
+        }
+        // Several lists: merge by key. An order moving status or being archived mid-query
+        // may appear in two lists at once, which the map also de-duplicates.
+        TreeMap<Long, Order> merged = new TreeMap<>();
+        for (NavigableMap<Long, Order> range : ranges) {
+            merged.putAll(range);
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    private ConcurrentSkipListMap<Long, Order> statusIndex(Order order, Order.Status status) {
+        return index.get(order.getTransaction().getType()).get(status);
+    }
+
+    /**
+     * Builds a sort key ordering orders by date, then by ID.
+     */
+    private static long dateKey(Order order) {
+        return OrderArchive.dateKey(order.getDate().toEpochDay(), order.getId());
+    }
+
+    /**
+     * An immutable list of the first archivedCount archived orders followed by a live snapshot.
+     * The archive only grows, so the archived part never changes.
+     */
+    private static final class OrderList extends AbstractList<Order> implements RandomAccess {
+        final OrderArchive archive;
+        final int archivedCount;
+        final SnapshotList<Order> live;
+
+        OrderList(OrderArchive archive, int archivedCount, SnapshotList<Order> live) {
+            this.archive = archive;
+            this.archivedCount = archivedCount;
+            this.live = live;
+        }
+
+        OrderList withLive(SnapshotList<Order> newLive) {
+            return new OrderList(archive, archivedCount, newLive);
+        }
+
+        @Override
+        public Order get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            return index < archivedCount ? archive.get(index) : live.get(index - archivedCount);
+        }
+
+        @Override
+        public int size() {
+            return archivedCount + live.size();
+        }
+    }
+}
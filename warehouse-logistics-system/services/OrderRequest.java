@@ -0,0 +1,48 @@
+package services;
+
+import java.util.List;
+import java.util.Map;
+
+import models.OrderLine;
+
+/**
+ * One order in a batch passed to {@link OrderService#createOrders(List, boolean)}.
+ * Text product keys are parsed when the request is built, so a batch is parsed only once.
+ */
+public class OrderRequest {
+    private final List<OrderLine> lines; // Null if the product keys were malformed
+    private final boolean purchase;
+
+    /**
+     * Constructs a request from text product keys, as used by {@link OrderService#createOrder(Map, boolean)}.
+     *
+     * @param products Map of product keys ("itemId" for a sale, "supplierId:itemId" for a purchase) to quantities.
+     * @param purchase Whether the order is a purchase (true) or a sale (false).
+     */
+    public OrderRequest(Map<String, Integer> products, boolean purchase) {
+        this.lines = OrderLine.parseAll(products, purchase);
+        this.purchase = purchase;
+    }
+
+    /**
+     * Constructs a request from parsed order lines.
+     *
+     * @param lines The ordered items and quantities.
+     * @param purchase Whether the order is a purchase (true) or a sale (false).
+     */
+    public OrderRequest(List<OrderLine> lines, boolean purchase) {
+        this.lines = List.copyOf(lines);
+        this.purchase = purchase;
+    }
+
+    /**
+     * Returns the order lines, or null if the request's product keys could not be parsed.
+     */
+    public List<OrderLine> getLines() {
+        return lines;
+    }
+
+    public boolean isPurchase() {
+        return purchase;
+    }
+}
@@ -0,0 +1,60 @@
+package services;
+
+import models.Order;
+
+/**
+ * The outcome of one request in a batch passed to {@link OrderService#createOrders(java.util.List, boolean)}:
+ * either the created order or the reason it was rejected.
+ */
+public class OrderResult {
+    private final int requestIndex;
+    private final Order order;
+    private final String error;
+
+    private OrderResult(int requestIndex, Order order, String error) {
+        this.requestIndex = requestIndex;
+        this.order = order;
+        this.error = error;
+    }
+
+    static OrderResult success(int requestIndex, Order order) {
+        return new OrderResult(requestIndex, order, null);
+    }
+
+    static OrderResult failure(int requestIndex, String error) {
+        return new OrderResult(requestIndex, null, error);
+    }
+
+    /**
+     * Returns the position of the request in the submitted batch.
+     */
+    public int getRequestIndex() {
+        return requestIndex;
+    }
+
+    /**
+     * Returns whether the order was created.
+     */
+    public boolean isSuccess() {
+        return order != null;
+    }
+
+    /**
+     * Returns the created order, or null if the request was rejected.
+     */
+    public Order getOrder() {
+        return order;
+    }
+
+    /**
+     * Returns the reason the request was rejected, or null if it succeeded.
+     */
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "Request " + requestIndex + ": " + (isSuccess() ? "Order #" + order.getId() : "Rejected - " + error);
+    }
+}
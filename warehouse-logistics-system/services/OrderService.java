@@ -6,27 +6,56 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Service responsible for creating and managing orders and their delivery status.
+ * Orders are held in an {@link OrderRepository}, so lookups by ID take constant
+ * time however many orders have been placed, and queries by type, status and
+ * date cost time in proportion to the number of matching orders.
+ * Purchase deliveries are simulated by a {@link DeliveryScheduler}, by default a
+ * timer wheel owned by this service; call {@link #shutdown()} to stop it.
  */
 public class OrderService {
 
-    private final List<Order> orders;
+    private final OrderRepository orders;
     private final OrderCreationService orderCreationService;
-    private static final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(10);
+    private final DeliveryScheduler deliveryScheduler;
+    private final Map<Integer, OrderHandle> handles = new ConcurrentHashMap<>(); // Async orders still in progress
+    private final ExecutorService archiveExecutor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "order-archiver");
+        thread.setDaemon(true);
+        return thread;
+    }); // Its thread starts with the first archive run
+
+    private static final long TRANSIT_DELAY_MILLIS = 10_000; // Time spent in each delivery stage
 
     /**
-     * Constructs the OrderService with a provided OrderCreationService dependency.
+     * Constructs the OrderService with a provided OrderCreationService dependency
+     * and its own timer wheel delivery scheduler.
      *
      * @param orderCreationService The service responsible for constructing new orders.
      */
     public OrderService(OrderCreationService orderCreationService) {
-        this.orders = new ArrayList<>();
+        this(orderCreationService, new TimerWheelDeliveryScheduler());
+    }
+
+    /**
+     * Constructs the OrderService with the given delivery scheduler.
+     *
+     * @param orderCreationService The service responsible for constructing new orders.
+     * @param deliveryScheduler The scheduler that moves purchase orders through delivery.
+     */
+    public OrderService(OrderCreationService orderCreationService, DeliveryScheduler deliveryScheduler) {
+        this.orders = new OrderRepository(this::onStatusChanged);
         this.orderCreationService = orderCreationService;
+        this.deliveryScheduler = deliveryScheduler;
     }
 
     /**
@@ -37,14 +66,102 @@ public class OrderService {
      * @return The ID of the newly created order.
      */
     public int createOrder(Map<String, Integer> products, boolean isPurchase) {
+        return createOrder(products, isPurchase, null).getId();
+    }
+
+    /**
+     * Creates an order without blocking the caller. The returned handle's futures
+     * complete as the order is accepted, moves through each status, and has its
+     * stock applied, so follow-up work can be chained instead of polling.
+     * Creation runs on the common fork-join pool.
+     *
+     * @param products A map of product names to quantities.
+     * @param isPurchase Whether the order is a purchase (true) or a sale (false).
+     * @return A handle tracking the order.
+     */
+    public OrderHandle createOrderAsync(Map<String, Integer> products, boolean isPurchase) {
+        return createOrderAsync(products, isPurchase, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates an order on the given executor without blocking the caller.
+     *
+     * @param products A map of product names to quantities.
+     * @param isPurchase Whether the order is a purchase (true) or a sale (false).
+     * @param executor The executor that validates and creates the order.
+     * @return A handle tracking the order.
+     */
+    public OrderHandle createOrderAsync(Map<String, Integer> products, boolean isPurchase, Executor executor) {
+        OrderHandle handle = new OrderHandle();
+        executor.execute(() -> {
+            try {
+                createOrder(products, isPurchase, handle);
+            } catch (RuntimeException e) {
+                handle.reject(e);
+            }
+        });
+        return handle;
+    }
+
+    /**
+     * Creates and stores an order, reporting its progress to the handle if there is one.
+     */
+    private Order createOrder(Map<String, Integer> products, boolean isPurchase, OrderHandle handle) {
         Order order = generateOrder(products, isPurchase);
+        if (handle != null && isPurchase) {
+            // Registered before the order is stored, so no status change can be missed
+            handles.put(order.getId(), handle);
+        }
         orders.add(order);
 
+        if (handle != null) {
+            handle.accept(order);
+            if (!isPurchase) {
+                handle.applyStock(order); // Sale stock is taken when the order is created
+            }
+        }
         if (isPurchase) {
             schedulePurchaseDelivery(order);
         }
 
-        return order.getId();
+        return order;
+    }
+
+    /**
+     * Passes a status change on to the order's async handle, if it has one.
+     */
+    private void onStatusChanged(Order order, Order.Status oldStatus, Order.Status newStatus) {
+        OrderHandle handle = handles.get(order.getId());
+        if (handle != null) {
+            handle.statusChanged(order, newStatus);
+        }
+    }
+
+    /**
+     * Creates a batch of orders, for example from a nightly import, in one
+     * validation and stock pass. Accepted purchase orders are scheduled for
+     * delivery as usual.
+     *
+     * @param requests The orders to create.
+     * @param partialSuccess Whether valid orders should be created when others in the batch fail.
+     *                       If false, either every order is created or none is.
+     * @return One result per request, in request order.
+     */
+    public List<OrderResult> createOrders(List<OrderRequest> requests, boolean partialSuccess) {
+        List<OrderResult> results = orderCreationService.createOrders(requests, partialSuccess);
+
+        List<Order> created = new ArrayList<>(results.size());
+        for (OrderResult result : results) {
+            if (result.isSuccess()) created.add(result.getOrder());
+        }
+        orders.addAll(created);
+
+        for (Order order : created) {
+            if (order.getTransaction().getType() == FinancialTransaction.Type.PURCHASE) {
+                schedulePurchaseDelivery(order);
+            }
+        }
+        return results;
     }
 
     /**
@@ -60,8 +177,8 @@ public class OrderService {
             : Order.Status.DELIVERED;
 
         FinancialTransaction transaction = isPurchase
-            ? new PurchaseTransaction(LocalDate.now())
-            : new SaleTransaction(LocalDate.now());
+            ? new PurchaseTransaction(orderCreationService.today())
+            : new SaleTransaction(orderCreationService.today());
 
         return orderCreationService.createOrder(products, status, transaction);
     }
@@ -73,46 +190,54 @@ public class OrderService {
      */
     private void schedulePurchaseDelivery(Order order) {
         Runnable stockUpdateTask = orderCreationService.getStockUpdateTask(order);
-        deliveryStatusManager(order, stockUpdateTask);
+        deliveryStatusManager(order, () -> {
+            stockUpdateTask.run();
+            OrderHandle handle = handles.remove(order.getId());
+            if (handle != null) {
+                handle.applyStock(order);
+            }
+        });
     }
 
     /**
      * Retrieves all orders.
      *
-     * @return A list containing all orders (defensive copy).
+     * @return An immutable snapshot of all orders, returned without copying.
      */
     public List<Order> getAllOrders() {
-        return new ArrayList<>(orders);
+        return orders.getAll();
     }
 
     /**
      * Retrieves all orders that are of type PURCHASE.
      *
-     * @return A list of purchase orders.
+     * @return A list of purchase orders, ordered by date.
      */
     public List<Order> getPurchaseTransactions() {
-        List<Order> purchaseOrders = new ArrayList<>();
-        for (Order order : orders) {
-            if (order.getTransaction().getType() == FinancialTransaction.Type.PURCHASE) {
-                purchaseOrders.add(order);
-            }
-        }
-        return purchaseOrders;
+        return orders.find(FinancialTransaction.Type.PURCHASE, null, null, null);
     }
 
     /**
      * Retrieves all orders that are of type SALE.
      *
-     * @return A list of sale orders.
+     * @return A list of sale orders, ordered by date.
      */
     public List<Order> getSaleTransactions() {
-        List<Order> saleOrders = new ArrayList<>();
-        for (Order order : orders) {
-            if (order.getTransaction().getType() == FinancialTransaction.Type.SALE) {
-                saleOrders.add(order);
-            }
-        }
-        return saleOrders;
+        return orders.find(FinancialTransaction.Type.SALE, null, null, null);
+    }
+
+    /**
+     * Retrieves orders by type, current status and date, for example all
+     * purchases in transit this week. Any criterion may be null to match all.
+     *
+     * @param type The transaction type, or null for any.
+     * @param status The current order status, or null for any.
+     * @param from The earliest order date (inclusive), or null.
+     * @param to The latest order date (inclusive), or null.
+     * @return The matching orders, ordered by date and then ID.
+     */
+    public List<Order> getOrders(FinancialTransaction.Type type, Order.Status status, LocalDate from, LocalDate to) {
+        return orders.find(type, status, from, to);
     }
 
     /**
@@ -122,12 +247,69 @@ public class OrderService {
      * @return The order with the specified ID, or null if not found.
      */
     public Order getOrderById(int id) {
-        for (Order order : orders) {
-            if (order.getId() == id) {
-                return order;
-            }
+        return orders.findById(id);
+    }
+
+    /**
+     * Moves delivered orders older than the given age into the compact order archive.
+     * Archived orders are still returned by lookups, listings and reports.
+     *
+     * @param minAgeDays Orders dated more than this many days ago are archived.
+     * @return The number of orders archived.
+     */
+    public int archiveDeliveredOrders(int minAgeDays) {
+        if (minAgeDays < 0) {
+            throw new IllegalArgumentException("Archive age cannot be negative.");
         }
-        return null;
+        return orders.archiveDelivered(orderCreationService.today().minusDays(minAgeDays));
+    }
+
+    /**
+     * Archives delivered orders periodically. The delivery scheduler only triggers
+     * each run; the archiving itself runs on this service's own archive thread, so
+     * it never holds up deliveries.
+     *
+     * @param interval The time between archive runs.
+     * @param unit The unit of the interval.
+     * @param minAgeDays Orders dated more than this many days ago are archived.
+     */
+    public void scheduleArchival(long interval, TimeUnit unit, int minAgeDays) {
+        scheduleArchival(interval, unit, minAgeDays, archiveExecutor);
+    }
+
+    /**
+     * Archives delivered orders periodically on the given executor.
+     *
+     * @param interval The time between archive runs.
+     * @param unit The unit of the interval.
+     * @param minAgeDays Orders dated more than this many days ago are archived.
+     * @param executor The executor that runs each archive pass.
+     */
+    public void scheduleArchival(long interval, TimeUnit unit, int minAgeDays, Executor executor) {
+        deliveryScheduler.schedule(() -> {
+            try {
+                executor.execute(() -> {
+                    try {
+                        archiveDeliveredOrders(minAgeDays);
+                    } finally {
+                        try {
+                            scheduleArchival(interval, unit, minAgeDays, executor);
+                        } catch (IllegalStateException e) {
+                            // The delivery scheduler has been shut down, so archiving stops
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // The service has been shut down, so archiving stops
+            }
+        }, interval, unit);
+    }
+
+    /**
+     * Get the number of orders held in the compact archive.
+     */
+    public int getArchivedOrderCount() {
+        return orders.getArchivedCount();
     }
 
     /**
@@ -136,19 +318,28 @@ public class OrderService {
      * PROCESSED → IN_TRANSIT after 10s  
      * IN_TRANSIT → DELIVERED after a further 10s  
      * Runs the given callback once delivery is complete.
+     * Only the next transition of each order is scheduled at any time.
      *
      * @param order        The order being delivered.
      * @param onDelivered  The task to run once delivery is complete.
      */
     private void deliveryStatusManager(Order order, Runnable onDelivered) {
-        // Transition from PROCESSED to IN_TRANSIT (10 second delay)
-        scheduler.schedule(() -> order.setStatus(Order.Status.IN_TRANSIT),
-                10, TimeUnit.SECONDS);
-
-        // Transition from IN_TRANSIT to DELIVERED and update stock (10 second delay)
-        scheduler.schedule(() -> {
-            order.setStatus(Order.Status.DELIVERED);
-            onDelivered.run();
-        }, 20, TimeUnit.SECONDS);
+        // Transition from PROCESSED to IN_TRANSIT, then from IN_TRANSIT to DELIVERED and update stock
+        deliveryScheduler.schedule(() -> {
+            order.setStatus(Order.Status.IN_TRANSIT);
+            deliveryScheduler.schedule(() -> {
+                order.setStatus(Order.Status.DELIVERED);
+                onDelivered.run();
+            }, TRANSIT_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }, TRANSIT_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the delivery scheduler and the archive thread. Deliveries still in
+     * progress will not complete.
+     */
+    public void shutdown() {
+        deliveryScheduler.shutdown();
+        archiveExecutor.shutdown();
     }
 }
@@ -1,11 +1,23 @@
 package services;
 
 import models.*;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -13,12 +25,14 @@ public class OrderServiceTest {
 
     private OrderService orderService;
     private OrderCreationService orderCreationService;
+    private InventoryService inventoryService;
+    private SupplierService supplierService;
 
     @BeforeEach
     public void setUp() {
         // --- INVENTORY SETUP ---
-        InventoryService inventoryService = new InventoryService();
-        SupplierService supplierService = new SupplierService(inventoryService);
+        inventoryService = new InventoryService();
+        supplierService = new SupplierService(inventoryService);
         OrderCreationService orderCreationService = new OrderCreationService(inventoryService, supplierService);
         orderService = new OrderService(orderCreationService);
 
@@ -58,6 +72,11 @@ public class OrderServiceTest {
 
         orderService.createOrder(purchaseProducts2, true); // true = Purchase order
     }
+
+    @AfterEach
+    public void tearDown() {
+        orderService.shutdown(); // Stops the timer wheel thread started by setUp
+    }
     
     @Test
     public void testCreateOrderSale() {
@@ -71,6 +90,31 @@ public class OrderServiceTest {
         assertEquals(Order.Status.DELIVERED, order.getStatus(), "Sale order should have DELIVERED status");
     }
 
+    @Test
+    public void testCreateOrderSaleWithInsufficientStock() {
+        Map<String, Integer> productsSale = new HashMap<>();
+        productsSale.put("2", 10);  // Mouse, plenty in stock
+        productsSale.put("1", 50);  // Laptop, only 8 left
+        assertThrows(IllegalArgumentException.class, () -> orderService.createOrder(productsSale, false));
+
+        // No line of the rejected order should have taken stock
+        assertEquals(50, (int) inventoryService.getStockLevelById(2));
+        assertEquals(8, (int) inventoryService.getStockLevelById(1));
+        assertEquals(3, orderService.getAllOrders().size());
+    }
+
+    @Test
+    public void testCreateOrderRejectsNonPositiveQuantities() {
+        assertThrows(IllegalArgumentException.class, () -> orderService.createOrder(Map.of("3:2", -5), true));
+        assertThrows(IllegalArgumentException.class, () -> orderService.createOrder(Map.of("3:2", 0), true));
+        assertThrows(IllegalArgumentException.class, () -> orderService.createOrder(Map.of("2", 0), false));
+
+        // A negative purchase must not record spend or supplier history
+        assertEquals(3, orderService.getAllOrders().size());
+        assertEquals(2, supplierService.getOrderHistoryForSupplier(3).size());
+        assertEquals(50, (int) inventoryService.getStockLevelById(2));
+    }
+
     @Test
     public void testCreateOrderPurchase() {
         Map<String, Integer> productsPurchase = new HashMap<>();
@@ -87,6 +131,27 @@ public class OrderServiceTest {
         // Not testing the delivery schedular as it is only to simulate delivery times
     }
 
+    @Test
+    public void testPurchaseRecordsHistoryPerSupplier() {
+        Map<String, Integer> products = new HashMap<>();
+        products.put("1:1", 2);  // Supplier 1, Laptop at 1400
+        products.put("3:2", 10); // Supplier 3, Mouse at 23
+        products.put("3:3", 1);  // Supplier 3, Keyboard at 64
+        int orderId = orderService.createOrder(products, true);
+
+        assertEquals(2800 + 230 + 64, orderService.getOrderById(orderId).getTotal(), 0.001);
+
+        List<SupplierOrderRecord> acme = supplierService.getOrderHistoryForSupplier(1);
+        assertEquals(1, acme.size());
+        assertEquals(2800, acme.get(0).getTotal(), 0.001);
+
+        List<SupplierOrderRecord> shell = supplierService.getOrderHistoryForSupplier(3);
+        SupplierOrderRecord latest = shell.get(shell.size() - 1);
+        assertEquals(orderId, latest.getId());
+        assertEquals(294, latest.getTotal(), 0.001);
+        assertEquals(Map.of(2, 10, 3, 1), latest.getItems());
+    }
+
     @Test
     public void testGenerateOrder() {
         // Testing if generateOrder correctly sets the order status and transaction type
@@ -137,6 +202,553 @@ public class OrderServiceTest {
         assertEquals(orderId, order.getId(), "Order ID should match");
     }
 
+    @Test
+    public void testGetOrderByIdKeepsInsertionOrderListing() {
+        Map<String, Integer> productsSale = new HashMap<>();
+        productsSale.put("2", 1);
+        int firstId = orderService.createOrder(productsSale, false);
+        int secondId = orderService.createOrder(productsSale, false);
+
+        assertEquals(secondId, orderService.getOrderById(secondId).getId());
+        assertEquals(firstId, orderService.getOrderById(firstId).getId());
+        var orders = orderService.getAllOrders();
+        assertEquals(firstId, orders.get(orders.size() - 2).getId(), "Orders should be listed in creation order");
+        assertEquals(secondId, orders.get(orders.size() - 1).getId());
+    }
+
+    @Test
+    public void testGetOrdersFollowsStatusTransitions() {
+        LocalDate today = LocalDate.now();
+        var processed = orderService.getOrders(FinancialTransaction.Type.PURCHASE, Order.Status.PROCESSED, today, today);
+        assertEquals(2, processed.size());
+        assertTrue(orderService.getOrders(FinancialTransaction.Type.PURCHASE, Order.Status.IN_TRANSIT, null, null).isEmpty());
+
+        Order order = processed.get(0);
+        order.setStatus(Order.Status.IN_TRANSIT);
+
+        assertEquals(1, orderService.getOrders(FinancialTransaction.Type.PURCHASE, Order.Status.PROCESSED, null, null).size());
+        assertEquals(List.of(order), orderService.getOrders(FinancialTransaction.Type.PURCHASE, Order.Status.IN_TRANSIT, null, null));
+        assertEquals(2, orderService.getOrders(FinancialTransaction.Type.PURCHASE, null, today, null).size());
+        assertEquals(3, orderService.getOrders(null, null, null, null).size());
+        assertTrue(orderService.getOrders(null, null, today.plusDays(1), null).isEmpty());
+        assertTrue(orderService.getOrders(null, null, null, today.minusDays(1)).isEmpty());
+    }
+
+    @Test
+    public void testOrderLinesAreParsedOnce() {
+        Map<String, Integer> purchaseProducts = new HashMap<>();
+        purchaseProducts.put("3:2", 4);
+        Order order = orderService.getOrderById(orderService.createOrder(purchaseProducts, true));
+
+        assertEquals(List.of(new OrderLine(3, 2, 4)), order.getLines());
+        assertEquals(Map.of("3:2", 4), order.getItems(), "Text keys should still be available");
+
+        Map<String, Integer> malformed = new HashMap<>();
+        malformed.put("3:x", 1);
+        assertThrows(IllegalArgumentException.class, () -> orderService.createOrder(malformed, true));
+        Map<String, Integer> saleWithSupplier = new HashMap<>();
+        saleWithSupplier.put("3:2", 1);
+        assertThrows(IllegalArgumentException.class, () -> orderService.createOrder(saleWithSupplier, false));
+        assertNull(OrderLine.parse("", 1, false));
+        assertNull(OrderLine.parse("99999999999", 1, false));
+    }
+
+    @Test
+    public void testCreateOrdersWithPartialSuccess() {
+        List<OrderRequest> batch = List.of(
+            new OrderRequest(Map.of("2", 10), false),   // Mouse, fits
+            new OrderRequest(Map.of("1", 50), false),   // Laptop, only 8 left
+            new OrderRequest(Map.of("9:9", 1), true),   // Unknown supplier item
+            new OrderRequest(Map.of("3:3", 4), true));  // Keyboard from supplier 3
+
+        List<OrderResult> results = orderService.createOrders(batch, true);
+
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertFalse(results.get(2).isSuccess());
+        assertTrue(results.get(3).isSuccess());
+        assertEquals(Order.Status.PROCESSED, results.get(3).getOrder().getStatus());
+        assertEquals(256.0, results.get(3).getOrder().getTotal(), 0.001);
+        assertEquals(40, (int) inventoryService.getStockLevelById(2));
+        assertEquals(8, (int) inventoryService.getStockLevelById(1));
+        assertSame(results.get(0).getOrder(), orderService.getOrderById(results.get(0).getOrder().getId()));
+        assertEquals(5, orderService.getAllOrders().size());
+    }
+
+    @Test
+    public void testCreateOrdersAllOrNothing() {
+        List<OrderRequest> batch = List.of(
+            new OrderRequest(Map.of("2", 10), false),
+            new OrderRequest(Map.of("1", 5), false),
+            new OrderRequest(Map.of("1", 5), false));   // Together with the order above, more than the 8 laptops left
+
+        List<OrderResult> results = orderService.createOrders(batch, false);
+
+        assertTrue(results.stream().noneMatch(OrderResult::isSuccess));
+        assertEquals(50, (int) inventoryService.getStockLevelById(2), "Reserved stock should be put back");
+        assertEquals(8, (int) inventoryService.getStockLevelById(1));
+        assertEquals(3, orderService.getAllOrders().size());
+
+        results = orderService.createOrders(batch.subList(0, 2), false);
+        assertTrue(results.stream().allMatch(OrderResult::isSuccess));
+        assertEquals(3, (int) inventoryService.getStockLevelById(1));
+    }
+
+    @Test
+    public void testRejectedOrdersUseNoOrderId() {
+        StockEventRing.Subscription events = inventoryService.getStockEvents().subscribe();
+        int last = orderService.getAllOrders().get(orderService.getAllOrders().size() - 1).getId();
+
+        assertThrows(IllegalArgumentException.class, () -> orderService.createOrder(Map.of("1", 50), false));
+        assertEquals(last + 1, orderService.createOrder(Map.of("2", 1), false));
+
+        List<OrderResult> partial = orderService.createOrders(List.of(
+            new OrderRequest(Map.of("2", 2), false),
+            new OrderRequest(Map.of("1", 50), false),   // Only 8 laptops left
+            new OrderRequest(Map.of("3:3", 1), true)), true);
+        assertEquals(last + 2, partial.get(0).getOrder().getId());
+        assertEquals(last + 3, partial.get(2).getOrder().getId());
+
+        List<OrderResult> rejected = orderService.createOrders(List.of(
+            new OrderRequest(Map.of("2", 3), false),
+            new OrderRequest(Map.of("1", 50), false)), false);
+        assertTrue(rejected.stream().noneMatch(OrderResult::isSuccess));
+        assertEquals(last + 4, orderService.createOrder(Map.of("2", 4), false));
+
+        // Stock events name the numbered orders, and no order for the rejected batch
+        List<String> seen = new ArrayList<>();
+        events.poll((sequence, itemId, delta, newQuantity, cause, orderId) ->
+            seen.add(itemId + " " + delta + " " + cause + " " + orderId), 100);
+        assertEquals(List.of(
+            "2 -1 SALE " + (last + 1),
+            "2 -2 SALE " + (last + 2),
+            "2 -3 SALE 0",
+            "2 3 RELEASE 0",
+            "2 -4 SALE " + (last + 4)), seen);
+    }
+
+    @Test
+    public void testIntakePipelineAcceptsOrdersFromManyThreads() throws Exception {
+        inventoryService.updateItemQuantity(2, 1000);
+        OrderIntakePipeline pipeline = new OrderIntakePipeline(orderService, 16, 3);
+        int producers = 4;
+        int ordersEach = 50;
+        List<Thread> threads = new ArrayList<>();
+        List<OrderResult> results = Collections.synchronizedList(new ArrayList<>());
+        for (int p = 0; p < producers; p++) {
+            Thread producer = new Thread(() -> {
+                try {
+                    for (int i = 0; i < ordersEach; i++) {
+                        results.add(pipeline.submitAndAwait(new OrderRequest(Map.of("2", 3), false)));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            threads.add(producer);
+            producer.start();
+        }
+        for (Thread producer : threads) {
+            producer.join();
+        }
+
+        // 1000 mice cover 333 orders of 3, so all 200 fit
+        assertEquals(producers * ordersEach, results.size());
+        assertTrue(results.stream().allMatch(OrderResult::isSuccess));
+        assertEquals(1000 - 3 * producers * ordersEach, (int) inventoryService.getStockLevelById(2));
+        assertEquals(3 + producers * ordersEach, orderService.getAllOrders().size());
+        assertEquals(producers * ordersEach, pipeline.getCreatedCount());
+        assertTrue(pipeline.shutdown(5, TimeUnit.SECONDS));
+        assertThrows(IllegalStateException.class, () -> pipeline.submit(new OrderRequest(Map.of("2", 1), false)));
+    }
+
+    @Test
+    public void testIntakePipelineShutdownLeavesNoOrderPending() throws Exception {
+        inventoryService.updateItemQuantity(2, 1_000_000);
+        for (int round = 0; round < 20; round++) {
+            OrderIntakePipeline pipeline = new OrderIntakePipeline(orderService, 1, 1);
+            List<CompletableFuture<OrderResult>> futures = Collections.synchronizedList(new ArrayList<>());
+            List<Thread> producers = new ArrayList<>();
+            for (int p = 0; p < 4; p++) {
+                Thread producer = new Thread(() -> {
+                    try {
+                        while (true) {
+                            futures.add(pipeline.submit(new OrderRequest(Map.of("2", 1), false)));
+                        }
+                    } catch (IllegalStateException | InterruptedException e) {
+                        // Shut down
+                    }
+                });
+                producers.add(producer);
+                producer.start();
+            }
+            Thread.sleep(5);
+            assertTrue(pipeline.shutdown(5, TimeUnit.SECONDS));
+            for (Thread producer : producers) {
+                producer.join(5000);
+                assertFalse(producer.isAlive());
+            }
+
+            // Every order that was accepted has been created or failed
+            for (CompletableFuture<OrderResult> future : futures) {
+                assertTrue(future.isDone(), "An accepted order was never completed");
+            }
+        }
+    }
+
+    @Test
+    public void testTimerWheelRunsDueTasksAndSkipsCancelled() throws InterruptedException {
+        TimerWheelDeliveryScheduler wheel = new TimerWheelDeliveryScheduler(5, TimeUnit.MILLISECONDS, 8);
+        List<String> fired = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(2);
+
+        wheel.schedule(() -> { fired.add("late"); done.countDown(); }, 120, TimeUnit.MILLISECONDS); // Several turns of the wheel
+        wheel.schedule(() -> { fired.add("early"); done.countDown(); }, 10, TimeUnit.MILLISECONDS);
+        DeliveryScheduler.Timeout cancelled = wheel.schedule(() -> fired.add("cancelled"), 30, TimeUnit.MILLISECONDS);
+        assertTrue(cancelled.cancel());
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("early", "late"), fired);
+        assertFalse(cancelled.cancel());
+
+        wheel.shutdown();
+        assertThrows(IllegalStateException.class, () -> wheel.schedule(() -> {}, 1, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testTimerWheelReportsFailingTasksAndKeepsRunning() throws InterruptedException {
+        TimerWheelDeliveryScheduler wheel = new TimerWheelDeliveryScheduler(5, TimeUnit.MILLISECONDS, 8);
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        wheel.setFailureHandler((thread, failure) -> failures.add(failure));
+        CountDownLatch done = new CountDownLatch(1);
+
+        wheel.schedule(() -> { throw new IllegalStateException("Delivery failed"); }, 5, TimeUnit.MILLISECONDS);
+        wheel.schedule(() -> { throw new AssertionError("Not a runtime exception"); }, 5, TimeUnit.MILLISECONDS);
+        wheel.schedule(done::countDown, 30, TimeUnit.MILLISECONDS);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS), "The wheel should keep running after a task fails.");
+        assertEquals(2, failures.size());
+        assertEquals("Delivery failed", failures.get(0).getMessage());
+        assertTrue(failures.get(1) instanceof AssertionError);
+        wheel.shutdown();
+    }
+
+    /**
+     * Builds an order service whose deliveries and dates follow the given virtual time.
+     */
+    private OrderService createVirtualTimeOrderService(InventoryService inventory, VirtualTimeScheduler virtualTime) {
+        SupplierService suppliers = new SupplierService(inventory);
+        inventory.addInventoryItem(1, "Laptop", "15-inch portable computer", 1000.0, 10);
+        suppliers.addSupplier("Acme Supplies", "acme@supplies.com", "02081234567", "London");
+        suppliers.createSupplierItem(1, 1, 900);
+        return new OrderService(new OrderCreationService(inventory, suppliers, virtualTime.getClock()), virtualTime);
+    }
+
+    @Test
+    public void testPurchaseOrderIsDeliveredInVirtualTime() {
+        VirtualTimeScheduler virtualTime = new VirtualTimeScheduler();
+        InventoryService inventory = new InventoryService();
+        OrderService service = createVirtualTimeOrderService(inventory, virtualTime);
+
+        Order order = service.getOrderById(service.createOrder(Map.of("1:1", 5), true));
+        assertEquals(Order.Status.PROCESSED, order.getStatus());
+
+        virtualTime.advance(10, TimeUnit.SECONDS);
+        assertEquals(Order.Status.IN_TRANSIT, order.getStatus());
+        assertEquals(10, (int) inventory.getStockLevelById(1), "Stock should arrive only on delivery");
+
+        virtualTime.advance(10, TimeUnit.SECONDS);
+        assertEquals(Order.Status.DELIVERED, order.getStatus());
+        assertEquals(15, (int) inventory.getStockLevelById(1));
+        assertEquals(List.of(order), service.getOrders(FinancialTransaction.Type.PURCHASE, Order.Status.DELIVERED, null, null));
+        assertEquals(0, virtualTime.getPendingCount());
+    }
+
+    @Test
+    public void testMonthOfOrdersSimulatesInVirtualTime() {
+        VirtualTimeScheduler virtualTime = new VirtualTimeScheduler(
+            Instant.parse("2024-03-01T09:00:00Z"), ZoneOffset.UTC);
+        InventoryService inventory = new InventoryService();
+        OrderService service = createVirtualTimeOrderService(inventory, virtualTime);
+
+        for (int day = 0; day < 30; day++) {
+            for (int i = 0; i < 10; i++) {
+                service.createOrder(Map.of("1:1", 1), true);
+            }
+            service.createOrder(Map.of("1", 1), false);
+            virtualTime.advance(1, TimeUnit.DAYS);
+        }
+
+        assertEquals(300, service.getOrders(FinancialTransaction.Type.PURCHASE, Order.Status.DELIVERED, null, null).size());
+        assertEquals(10 + 300 - 30, (int) inventory.getStockLevelById(1));
+        LocalDate lastWeek = LocalDate.of(2024, 3, 24);
+        assertEquals(70, service.getOrders(FinancialTransaction.Type.PURCHASE, null, lastWeek, lastWeek.plusDays(6)).size());
+        assertEquals(LocalDate.of(2024, 3, 30), service.getOrderById(330).getDate());
+    }
+
+    @Test
+    public void testVirtualClockFollowsVirtualTimeInAnyZone() {
+        VirtualTimeScheduler virtualTime = new VirtualTimeScheduler(
+            Instant.parse("2024-03-01T23:00:00Z"), ZoneOffset.UTC);
+        Clock tokyo = virtualTime.getClock().withZone(ZoneId.of("Asia/Tokyo"));
+
+        assertEquals(ZoneId.of("Asia/Tokyo"), tokyo.getZone());
+        assertEquals(LocalDate.of(2024, 3, 2), LocalDate.now(tokyo));
+        virtualTime.advance(1, TimeUnit.DAYS);
+        assertEquals(Instant.parse("2024-03-02T23:00:00Z"), tokyo.instant());
+        assertEquals(LocalDate.of(2024, 3, 3), LocalDate.now(tokyo));
+        assertEquals(LocalDate.of(2024, 3, 2), LocalDate.now(virtualTime.getClock()));
+    }
+
+    @Test
+    public void testArchivedOrdersRemainVisible() {
+        VirtualTimeScheduler virtualTime = new VirtualTimeScheduler(
+            Instant.parse("2024-03-01T09:00:00Z"), ZoneOffset.UTC);
+        InventoryService inventory = new InventoryService();
+        OrderService service = createVirtualTimeOrderService(inventory, virtualTime);
+        FinancialService finance = new FinancialService(service);
+        service.scheduleArchival(1, TimeUnit.DAYS, 7, Runnable::run);
+
+        int firstPurchase = service.createOrder(Map.of("1:1", 2), true);
+        int firstSale = service.createOrder(Map.of("1", 1), false);
+        virtualTime.advance(10, TimeUnit.DAYS);
+        int recent = service.createOrder(Map.of("1:1", 1), true);
+        virtualTime.advance(1, TimeUnit.DAYS);
+
+        assertEquals(2, service.getArchivedOrderCount());
+        Order archived = service.getOrderById(firstPurchase);
+        assertEquals(Order.Status.DELIVERED, archived.getStatus());
+        assertEquals(LocalDate.of(2024, 3, 1), archived.getDate());
+        assertEquals(Map.of("1:1", 2), archived.getItems());
+        assertEquals(1800.0, archived.getTotal(), 0.001);
+        assertEquals(FinancialTransaction.Type.SALE, service.getOrderById(firstSale).getTransaction().getType());
+
+        assertEquals(3, service.getAllOrders().size());
+        assertEquals(recent, service.getAllOrders().get(2).getId());
+        assertEquals(List.of(firstPurchase, recent), service.getPurchaseTransactions().stream().map(Order::getId).toList());
+        assertEquals(1, service.getOrders(null, Order.Status.DELIVERED, null, LocalDate.of(2024, 3, 5))
+            .stream().filter(order -> order.getId() == firstSale).count());
+        assertEquals(2700.0, (double) finance.generateAllTimeFinancialReport().get("totalPurchases"), 0.001);
+        assertEquals(1000.0, (double) finance.generateAllTimeFinancialReport().get("totalRevenue"), 0.001);
+    }
+
+    @Test
+    public void testArchivalRunsOffTheSchedulerThread() throws InterruptedException {
+        VirtualTimeScheduler virtualTime = new VirtualTimeScheduler(
+            Instant.parse("2024-03-01T09:00:00Z"), ZoneOffset.UTC);
+        InventoryService inventory = new InventoryService();
+        OrderService service = createVirtualTimeOrderService(inventory, virtualTime);
+        List<String> archiveThreads = Collections.synchronizedList(new ArrayList<>());
+        service.scheduleArchival(1, TimeUnit.DAYS, 0, task -> {
+            Thread archiver = new Thread(() -> {
+                archiveThreads.add(Thread.currentThread().getName());
+                task.run();
+            }, "test-archiver");
+            archiver.start();
+        });
+
+        service.createOrder(Map.of("1", 1), false);
+        virtualTime.advance(2, TimeUnit.DAYS);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (service.getArchivedOrderCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(1, service.getArchivedOrderCount());
+        assertEquals("test-archiver", archiveThreads.get(0));
+        service.shutdown();
+    }
+
+    @Test
+    public void testAsyncOrderHandleFollowsDelivery() {
+        VirtualTimeScheduler virtualTime = new VirtualTimeScheduler();
+        InventoryService inventory = new InventoryService();
+        OrderService service = createVirtualTimeOrderService(inventory, virtualTime);
+
+        OrderHandle handle = service.createOrderAsync(Map.of("1:1", 5), true, Runnable::run);
+        List<Integer> stockSeen = new ArrayList<>();
+        handle.stockApplied().thenAccept(order -> stockSeen.add(inventory.getStockLevelById(1)));
+
+        assertTrue(handle.accepted().isDone());
+        assertTrue(handle.statusReached(Order.Status.PROCESSED).isDone());
+        assertFalse(handle.statusReached(Order.Status.IN_TRANSIT).isDone());
+
+        virtualTime.advance(10, TimeUnit.SECONDS);
+        assertTrue(handle.statusReached(Order.Status.IN_TRANSIT).isDone());
+        assertFalse(handle.delivered().isDone());
+
+        virtualTime.advance(10, TimeUnit.SECONDS);
+        assertEquals(Order.Status.DELIVERED, handle.delivered().join().getStatus());
+        assertEquals(List.of(15), stockSeen, "Stock should be applied before the future completes");
+    }
+
+    @Test
+    public void testStatusFuturesCompleteWithoutTheOrderLock() {
+        VirtualTimeScheduler virtualTime = new VirtualTimeScheduler();
+        InventoryService inventory = new InventoryService();
+        OrderService service = createVirtualTimeOrderService(inventory, virtualTime);
+
+        OrderHandle handle = service.createOrderAsync(Map.of("1:1", 5), true, Runnable::run);
+        List<Boolean> lockHeld = new ArrayList<>();
+        handle.statusReached(Order.Status.IN_TRANSIT).thenAccept(order -> lockHeld.add(Thread.holdsLock(order)));
+        virtualTime.advance(20, TimeUnit.SECONDS);
+
+        assertEquals(List.of(false), lockHeld);
+        Order order = handle.delivered().join();
+        assertEquals(List.of(order), service.getOrders(FinancialTransaction.Type.PURCHASE, Order.Status.DELIVERED, null, null));
+        assertTrue(service.getOrders(FinancialTransaction.Type.PURCHASE, Order.Status.IN_TRANSIT, null, null).isEmpty());
+    }
+
+    @Test
+    public void testConcurrentStatusChangesKeepIndexConsistent() throws InterruptedException {
+        List<Order> purchases = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            purchases.add(orderService.getOrderById(orderService.createOrder(Map.of("3:2", 1), true)));
+        }
+
+        // Two threads race each order through the later statuses, so notifications interleave
+        Thread inTransit = new Thread(() -> purchases.forEach(order -> order.setStatus(Order.Status.IN_TRANSIT)));
+        Thread delivered = new Thread(() -> purchases.forEach(order -> order.setStatus(Order.Status.DELIVERED)));
+        inTransit.start();
+        delivered.start();
+        inTransit.join();
+        delivered.join();
+
+        for (Order.Status status : Order.Status.values()) {
+            for (Order order : orderService.getOrders(FinancialTransaction.Type.PURCHASE, status, null, null)) {
+                assertEquals(status, order.getStatus());
+            }
+        }
+        assertEquals(202, orderService.getOrders(FinancialTransaction.Type.PURCHASE, null, null, null).size());
+    }
+
+    @Test
+    public void testAsyncOrderHandleReportsRejection() {
+        VirtualTimeScheduler virtualTime = new VirtualTimeScheduler();
+        OrderService service = createVirtualTimeOrderService(new InventoryService(), virtualTime);
+
+        OrderHandle sale = service.createOrderAsync(Map.of("1", 3), false, Runnable::run);
+        assertTrue(sale.delivered().isDone());
+        assertTrue(sale.stockApplied().isDone());
+
+        OrderHandle rejected = service.createOrderAsync(Map.of("1", 500), false, Runnable::run);
+        assertTrue(rejected.accepted().isCompletedExceptionally());
+        assertTrue(rejected.stockApplied().isCompletedExceptionally());
+    }
+
+    @Test
+    public void testReplenishmentOrdersUpToLevelFromCheapestSupplier() {
+        VirtualTimeScheduler virtualTime = new VirtualTimeScheduler();
+        InventoryService inventory = new InventoryService();
+        SupplierService suppliers = new SupplierService(inventory);
+        OrderService service = new OrderService(
+            new OrderCreationService(inventory, suppliers, virtualTime.getClock()), virtualTime);
+        inventory.addInventoryItem(1, "Laptop", "15-inch portable computer", 1000.0, 10);
+        inventory.addInventoryItem(2, "Mouse", "Wireless optical mouse", 25.0, 5);
+        inventory.addInventoryItem(3, "Keyboard", "Mechanical keyboard", 70.0, 30);
+        suppliers.addSupplier("Acme Supplies", "acme@supplies.com", "02081234567", "London");
+        suppliers.addSupplier("Global Distributors", "contact@global.com", "01709876543", "Birmingham");
+        suppliers.createSupplierItem(1, 1, 900);
+        suppliers.createSupplierItem(2, 1, 850);
+        suppliers.createSupplierItem(2, 2, 20);
+
+        ReplenishmentEngine engine = new ReplenishmentEngine(inventory, suppliers, service, virtualTime, Runnable::run);
+        engine.setOrderUpToLevel(2, 25);
+        engine.start(1, TimeUnit.MINUTES);
+        virtualTime.advance(1, TimeUnit.MINUTES);
+
+        // Both low items come from supplier 2 in one order; the keyboard is not low
+        List<Order> placed = service.getOrders(FinancialTransaction.Type.PURCHASE, Order.Status.PROCESSED, null, null);
+        assertEquals(1, placed.size());
+        assertEquals(Map.of("2:1", 30, "2:2", 20), placed.get(0).getItems());
+
+        // Stock on order is not ordered again
+        assertEquals(List.of(), engine.runOnce());
+
+        virtualTime.advance(20, TimeUnit.SECONDS);
+        assertEquals(40, (int) inventory.getStockLevelById(1));
+        assertEquals(25, (int) inventory.getStockLevelById(2));
+
+        inventory.tryReserve(2, 15);
+        engine.stop();
+        virtualTime.advance(5, TimeUnit.MINUTES);
+        assertEquals(1, service.getPurchaseTransactions().size(), "A stopped engine should not sweep");
+
+        List<Integer> topUp = engine.runOnce();
+        assertEquals(Map.of("2:2", 15), service.getOrderById(topUp.get(0)).getItems());
+    }
+
+    @Test
+    public void testReplenishmentSweepsRunOffTheSchedulerThread() throws InterruptedException {
+        VirtualTimeScheduler virtualTime = new VirtualTimeScheduler();
+        InventoryService inventory = new InventoryService();
+        SupplierService suppliers = new SupplierService(inventory);
+        OrderService service = new OrderService(
+            new OrderCreationService(inventory, suppliers, virtualTime.getClock()), virtualTime);
+        inventory.addInventoryItem(1, "Laptop", "15-inch portable computer", 1000.0, 10);
+        suppliers.addSupplier("Acme Supplies", "acme@supplies.com", "02081234567", "London");
+        suppliers.createSupplierItem(1, 1, 900);
+
+        List<String> sweepThreads = Collections.synchronizedList(new ArrayList<>());
+        ReplenishmentEngine engine = new ReplenishmentEngine(inventory, suppliers, service, virtualTime, task -> {
+            Thread sweeper = new Thread(() -> {
+                sweepThreads.add(Thread.currentThread().getName());
+                task.run();
+            }, "test-sweeper");
+            sweeper.start();
+        });
+
+        // Restarting the engine while time advances must not deadlock
+        Thread restarter = new Thread(() -> {
+            for (int i = 0; i < 200; i++) {
+                engine.start(1, TimeUnit.MINUTES);
+            }
+        });
+        restarter.start();
+        for (int i = 0; i < 200; i++) {
+            virtualTime.advance(1, TimeUnit.MINUTES);
+        }
+        restarter.join(5000);
+        assertFalse(restarter.isAlive(), "Restarting the engine should not deadlock with the scheduler.");
+
+        engine.start(1, TimeUnit.MINUTES);
+        virtualTime.advance(1, TimeUnit.MINUTES);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (service.getPurchaseTransactions().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        engine.stop();
+        assertFalse(service.getPurchaseTransactions().isEmpty());
+        assertFalse(sweepThreads.isEmpty());
+        assertTrue(sweepThreads.stream().allMatch("test-sweeper"::equals));
+    }
+
+    @Test
+    public void testReplenishmentStopsQuietlyAfterShutdown() {
+        VirtualTimeScheduler virtualTime = new VirtualTimeScheduler();
+        InventoryService inventory = new InventoryService();
+        SupplierService suppliers = new SupplierService(inventory);
+        OrderService service = new OrderService(
+            new OrderCreationService(inventory, suppliers, virtualTime.getClock()), virtualTime);
+
+        List<Runnable> sweeps = new ArrayList<>();
+        ReplenishmentEngine engine = new ReplenishmentEngine(inventory, suppliers, service, virtualTime, sweeps::add);
+        engine.start(1, TimeUnit.MINUTES);
+        virtualTime.advance(1, TimeUnit.MINUTES);
+        assertEquals(1, sweeps.size());
+
+        // A stopped engine's sweep that was already handed off does not schedule another
+        engine.stop();
+        sweeps.remove(0).run();
+        assertEquals(0, virtualTime.getPendingCount());
+
+        // A sweep finishing after the scheduler has shut down does not throw
+        engine.start(1, TimeUnit.MINUTES);
+        virtualTime.advance(1, TimeUnit.MINUTES);
+        service.shutdown();
+        assertDoesNotThrow(sweeps.remove(0)::run);
+        engine.shutdown();
+    }
+
     @Test
     public void testGetOrderByIdNegative() {
         // Try to get an order with a non-existing ID
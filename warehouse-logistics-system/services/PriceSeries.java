@@ -0,0 +1,281 @@
+package services;
+
+import java.util.Arrays;
+
+import models.PriceStats;
+
+/**
+ * The history of one supplier item's price, stored compactly.
+ *
+ * Each change is stored as two variable-length integers: the seconds since the
+ * previous change, and the difference from the previous price in pence
+ * (zig-zag encoded so small drops stay small). Daily changes of a few pounds
+ * take four or five bytes each. Changes are grouped into blocks of
+ * {@link #BLOCK_SIZE}; each block starts at a checkpoint holding its first
+ * change in full, so a lookup decodes only one block. Per-block prefix sums and a segment tree of
+ * block minima and maxima answer range statistics by decoding at most the two
+ * partly covered blocks.
+ *
+ * Prices are kept to the nearest penny. Changes must arrive in time order; a
+ * timestamp earlier than the last one is treated as happening at the same time.
+ */
+class PriceSeries {
+    static final int BLOCK_SIZE = 64;
+    private static final int INITIAL_BLOCKS = 4;
+
+    private byte[] data = new byte[32];
+    private int length;
+    private int count;
+    private long lastTime;
+    private long lastPrice;
+
+    // Per block: its first change in full, and where the rest of its changes start in data
+    private int blockCount;
+    private long[] blockTimes = new long[INITIAL_BLOCKS];
+    private long[] blockPrices = new long[INITIAL_BLOCKS];
+    private int[] blockOffsets = new int[INITIAL_BLOCKS];
+    private long[] blockPrefixSums = new long[INITIAL_BLOCKS + 1]; // Sum of all prices in blocks before k
+
+    // Segment tree over blocks; leaves start at treeLeaves
+    private int treeLeaves = INITIAL_BLOCKS;
+    private long[] treeMin = emptyTree(INITIAL_BLOCKS, Long.MAX_VALUE);
+    private long[] treeMax = emptyTree(INITIAL_BLOCKS, Long.MIN_VALUE);
+
+    /**
+     * Records a price change.
+     *
+     * @param epochSecond when the price changed
+     * @param price       the new price
+     */
+    synchronized void record(long epochSecond, double price) {
+        long pence = Math.round(price * 100);
+        long time = count > 0 ? Math.max(epochSecond, lastTime) : epochSecond;
+
+        int block = count / BLOCK_SIZE;
+        if (count % BLOCK_SIZE == 0) {
+            ensureBlockCapacity(block + 1);
+            blockTimes[block] = time;
+            blockPrices[block] = pence;
+            blockOffsets[block] = length;
+            blockPrefixSums[block + 1] = blockPrefixSums[block];
+            blockCount++;
+        } else {
+            ensureDataCapacity(length + 20);
+            writeVarLong(time - lastTime);
+            writeVarLong(zigZag(pence - lastPrice));
+        }
+        blockPrefixSums[block + 1] += pence;
+        updateTree(block, pence);
+
+        lastTime = time;
+        lastPrice = pence;
+        count++;
+    }
+
+    /**
+     * Returns the price in effect at a moment.
+     *
+     * @param epochSecond the moment
+     * @return the price, or null if the first recorded price is later
+     */
+    synchronized Double priceAt(long epochSecond) {
+        int index = indexAtOrBefore(epochSecond);
+        if (index < 0) return null;
+        long[] prices = new long[BLOCK_SIZE];
+        decodeBlock(index / BLOCK_SIZE, new long[BLOCK_SIZE], prices);
+        return prices[index % BLOCK_SIZE] / 100.0;
+    }
+
+    /**
+     * Summarises the prices in effect between two moments: the price at the start
+     * plus every change up to the end.
+     *
+     * @param fromSecond the start of the period (inclusive)
+     * @param toSecond   the end of the period (inclusive)
+     * @return the statistics, or null if no price was in effect during the period
+     */
+    synchronized PriceStats stats(long fromSecond, long toSecond) {
+        int last = indexAtOrBefore(toSecond);
+        if (last < 0 || fromSecond > toSecond) return null;
+        int first = Math.max(indexAtOrBefore(fromSecond), 0);
+
+        int firstBlock = first / BLOCK_SIZE;
+        int lastBlock = last / BLOCK_SIZE;
+        long[] times = new long[BLOCK_SIZE];
+        long[] prices = new long[BLOCK_SIZE];
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        long sum = 0;
+
+        // Partly covered blocks at each end are decoded
+        decodeBlock(firstBlock, times, prices);
+        int firstBlockEnd = firstBlock == lastBlock ? last % BLOCK_SIZE : BLOCK_SIZE - 1;
+        for (int i = first % BLOCK_SIZE; i <= firstBlockEnd; i++) {
+            min = Math.min(min, prices[i]);
+            max = Math.max(max, prices[i]);
+            sum += prices[i];
+        }
+        if (lastBlock > firstBlock) {
+            decodeBlock(lastBlock, times, prices);
+            for (int i = 0; i <= last % BLOCK_SIZE; i++) {
+                min = Math.min(min, prices[i]);
+                max = Math.max(max, prices[i]);
+                sum += prices[i];
+            }
+        }
+
+        // Whole blocks in between come from the prefix sums and the tree
+        if (lastBlock - firstBlock > 1) {
+            sum += blockPrefixSums[lastBlock] - blockPrefixSums[firstBlock + 1];
+            min = Math.min(min, queryTree(treeMin, firstBlock + 1, lastBlock - 1, Long.MAX_VALUE, true));
+            max = Math.max(max, queryTree(treeMax, firstBlock + 1, lastBlock - 1, Long.MIN_VALUE, false));
+        }
+
+        int n = last - first + 1;
+        return new PriceStats(min / 100.0, max / 100.0, sum / 100.0 / n, n);
+    }
+
+    synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Returns the number of bytes used by the encoded changes, excluding checkpoints.
+     */
+    synchronized int getEncodedLength() {
+        return length;
+    }
+
+    /**
+     * Finds the last change made at or before a moment.
+     *
+     * @return its index, or -1 if every change is later
+     */
+    private int indexAtOrBefore(long epochSecond) {
+        if (count == 0 || epochSecond < blockTimes[0]) return -1;
+
+        // Last block starting at or before the moment
+        int low = 0, high = blockCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (blockTimes[mid] <= epochSecond) low = mid; else high = mid - 1;
+        }
+
+        long[] times = new long[BLOCK_SIZE];
+        int n = decodeBlock(low, times, new long[BLOCK_SIZE]);
+        int i = 0;
+        while (i + 1 < n && times[i + 1] <= epochSecond) i++;
+        return low * BLOCK_SIZE + i;
+    }
+
+    /**
+     * Decodes the changes of one block into the given arrays.
+     *
+     * @return the number of changes in the block
+     */
+    private int decodeBlock(int block, long[] times, long[] prices) {
+        int n = Math.min(BLOCK_SIZE, count - block * BLOCK_SIZE);
+        long time = blockTimes[block];
+        long price = blockPrices[block];
+        times[0] = time;
+        prices[0] = price;
+        int[] position = { blockOffsets[block] };
+        for (int i = 1; i < n; i++) {
+            time += readVarLong(position);
+            price += unZigZag(readVarLong(position));
+            times[i] = time;
+            prices[i] = price;
+        }
+        return n;
+    }
+
+    private void writeVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            data[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[length++] = (byte) value;
+    }
+
+    private long readVarLong(int[] position) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private void updateTree(int block, long pence) {
+        int node = treeLeaves + block;
+        treeMin[node] = Math.min(treeMin[node], pence);
+        treeMax[node] = Math.max(treeMax[node], pence);
+        for (node >>>= 1; node > 0; node >>>= 1) {
+            treeMin[node] = Math.min(treeMin[2 * node], treeMin[2 * node + 1]);
+            treeMax[node] = Math.max(treeMax[2 * node], treeMax[2 * node + 1]);
+        }
+    }
+
+    /**
+     * Returns the minimum or maximum over the blocks from first to last (inclusive).
+     */
+    private long queryTree(long[] tree, int first, int last, long identity, boolean minimum) {
+        long result = identity;
+        for (int lo = first + treeLeaves, hi = last + treeLeaves + 1; lo < hi; lo >>>= 1, hi >>>= 1) {
+            if ((lo & 1) == 1) {
+                long value = tree[lo++];
+                result = minimum ? Math.min(result, value) : Math.max(result, value);
+            }
+            if ((hi & 1) == 1) {
+                long value = tree[--hi];
+                result = minimum ? Math.min(result, value) : Math.max(result, value);
+            }
+        }
+        return result;
+    }
+
+    private void ensureBlockCapacity(int needed) {
+        if (needed <= blockTimes.length) return;
+        int capacity = Math.max(needed, blockTimes.length * 2);
+        blockTimes = Arrays.copyOf(blockTimes, capacity);
+        blockPrices = Arrays.copyOf(blockPrices, capacity);
+        blockOffsets = Arrays.copyOf(blockOffsets, capacity);
+        blockPrefixSums = Arrays.copyOf(blockPrefixSums, capacity + 1);
+
+        // Rebuild the tree with room for the new blocks
+        int leaves = Integer.highestOneBit(capacity - 1) << 1;
+        long[] newMin = emptyTree(leaves, Long.MAX_VALUE);
+        long[] newMax = emptyTree(leaves, Long.MIN_VALUE);
+        System.arraycopy(treeMin, treeLeaves, newMin, leaves, treeLeaves);
+        System.arraycopy(treeMax, treeLeaves, newMax, leaves, treeLeaves);
+        for (int node = leaves - 1; node > 0; node--) {
+            newMin[node] = Math.min(newMin[2 * node], newMin[2 * node + 1]);
+            newMax[node] = Math.max(newMax[2 * node], newMax[2 * node + 1]);
+        }
+        treeLeaves = leaves;
+        treeMin = newMin;
+        treeMax = newMax;
+    }
+
+    private void ensureDataCapacity(int needed) {
+        if (needed <= data.length) return;
+        data = Arrays.copyOf(data, Math.max(needed, data.length * 2));
+    }
+
+    private static long[] emptyTree(int leaves, long identity) {
+        long[] tree = new long[2 * leaves];
+        Arrays.fill(tree, identity);
+        return tree;
+    }
+}
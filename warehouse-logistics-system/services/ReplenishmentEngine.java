@@ -0,0 +1,291 @@
+package services;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import models.FinancialTransaction;
+import models.InventoryItem;
+import models.Order;
+import models.OrderLine;
+import models.Supplier;
+
+/**
+ * Restocks low inventory automatically by raising purchase orders.
+ *
+ * Each sweep reads the items below their low stock threshold from the inventory's
+ * low stock index, so its cost follows the number of low items and outstanding
+ * purchases rather than the size of the catalogue. For each low item it orders
+ * enough to bring stock plus quantities already on order up to the item's
+ * order-up-to level, from the supplier currently offering it most cheaply.
+ * Lines are grouped into one purchase order per supplier and placed as a single
+ * batch. At most a fixed number of orders are placed per sweep; anything left
+ * over is picked up by the next sweep.
+ *
+ * A {@link DeliveryScheduler} triggers the sweeps at a chosen interval, but the
+ * sweeps themselves run on a separate executor, so a slow sweep never holds up
+ * the scheduler's other tasks such as deliveries. No engine lock is held while
+ * calling the scheduler.
+ */
+public class ReplenishmentEngine {
+    public static final int DEFAULT_ORDER_UP_TO_FACTOR = 2;
+    public static final int DEFAULT_MAX_ORDERS_PER_SWEEP = 20;
+
+    private static final Order.Status[] OUTSTANDING = { Order.Status.PROCESSED, Order.Status.IN_TRANSIT };
+
+    private final InventoryService inventoryService;
+    private final SupplierService supplierService;
+    private final OrderService orderService;
+    private final DeliveryScheduler scheduler;
+    private final Executor sweepExecutor;
+    private final ExecutorService ownedExecutor; // Null if the executor was supplied by the caller
+    private final IntIntMap orderUpToLevels = new IntIntMap(); // Per-item overrides; guarded by this
+    private int orderUpToFactor = DEFAULT_ORDER_UP_TO_FACTOR;
+    private int maxOrdersPerSweep = DEFAULT_MAX_ORDERS_PER_SWEEP;
+
+    // Guards the fields below; never held while calling the scheduler
+    private final Object scheduleLock = new Object();
+    private DeliveryScheduler.Timeout nextSweep;
+    private long generation; // Bumped by start and stop so stale sweeps do nothing
+
+    /**
+     * Constructs a stopped engine that sweeps on its own background thread.
+     *
+     * @param inventoryService the inventory to watch
+     * @param supplierService  the suppliers to order from
+     * @param orderService     the service that places purchase orders
+     * @param scheduler        the scheduler that triggers the sweeps
+     */
+    public ReplenishmentEngine(InventoryService inventoryService, SupplierService supplierService,
+                               OrderService orderService, DeliveryScheduler scheduler) {
+        this(inventoryService, supplierService, orderService, scheduler, null);
+    }
+
+    /**
+     * Constructs a stopped engine that sweeps on the given executor.
+     *
+     * @param inventoryService the inventory to watch
+     * @param supplierService  the suppliers to order from
+     * @param orderService     the service that places purchase orders
+     * @param scheduler        the scheduler that triggers the sweeps
+     * @param sweepExecutor    the executor that runs the sweeps, or null for the engine's own thread
+     */
+    public ReplenishmentEngine(InventoryService inventoryService, SupplierService supplierService,
+                               OrderService orderService, DeliveryScheduler scheduler, Executor sweepExecutor) {
+        this.inventoryService = inventoryService;
+        this.supplierService = supplierService;
+        this.orderService = orderService;
+        this.scheduler = scheduler;
+        if (sweepExecutor == null) {
+            ownedExecutor = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, "replenishment-sweeper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.sweepExecutor = ownedExecutor;
+        } else {
+            ownedExecutor = null;
+            this.sweepExecutor = sweepExecutor;
+        }
+    }
+
+    /**
+     * Starts sweeping at a fixed interval, the first sweep one interval from now.
+     *
+     * @param interval the time between sweeps
+     * @param unit     the unit of the interval
+     */
+    public void start(long interval, TimeUnit unit) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Interval must be > 0.");
+        }
+        long current;
+        DeliveryScheduler.Timeout previous;
+        synchronized (scheduleLock) {
+            current = ++generation;
+            previous = nextSweep;
+            nextSweep = null;
+        }
+        if (previous != null) previous.cancel();
+        scheduleSweep(current, interval, unit);
+    }
+
+    /**
+     * Asks the scheduler to trigger the next sweep of the given generation. The
+     * scheduler only hands the sweep to the sweep executor.
+     */
+    private void scheduleSweep(long sweepGeneration, long interval, TimeUnit unit) {
+        DeliveryScheduler.Timeout timeout = scheduler.schedule(() -> {
+            try {
+                sweepExecutor.execute(() -> sweep(sweepGeneration, interval, unit));
+            } catch (RejectedExecutionException e) {
+                // The engine was shut down after this trigger fired
+            }
+        }, interval, unit);
+        synchronized (scheduleLock) {
+            if (generation == sweepGeneration) {
+                nextSweep = timeout;
+                return;
+            }
+        }
+        timeout.cancel(); // Stopped or restarted meanwhile
+    }
+
+    private void sweep(long sweepGeneration, long interval, TimeUnit unit) {
+        boolean stopped;
+        synchronized (scheduleLock) {
+            if (generation != sweepGeneration) return;
+        }
+        try {
+            runOnce();
+        } finally {
+            synchronized (scheduleLock) {
+                stopped = generation != sweepGeneration;
+            }
+            if (!stopped) {
+                try {
+                    scheduleSweep(sweepGeneration, interval, unit);
+                } catch (IllegalStateException e) {
+                    // The scheduler has been shut down, so sweeping stops
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops sweeping. Orders already placed are not affected.
+     */
+    public void stop() {
+        DeliveryScheduler.Timeout previous;
+        synchronized (scheduleLock) {
+            generation++;
+            previous = nextSweep;
+            nextSweep = null;
+        }
+        if (previous != null) previous.cancel();
+    }
+
+    /**
+     * Stops sweeping and releases the engine's own sweep thread, if it has one.
+     * The engine cannot be started again afterwards.
+     */
+    public void shutdown() {
+        stop();
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Checks stock once and places the purchase orders needed.
+     *
+     * @return the IDs of the orders placed
+     */
+    public synchronized List<Integer> runOnce() {
+        Map<InventoryItem, Integer> lowStock = inventoryService.getLowStockItems();
+        if (lowStock.isEmpty()) return new ArrayList<>();
+        IntIntMap onOrder = getQuantitiesOnOrder();
+
+        // Group the lines needed by the cheapest supplier of each item
+        Map<Integer, List<OrderLine>> linesBySupplier = new LinkedHashMap<>();
+        for (Map.Entry<InventoryItem, Integer> entry : lowStock.entrySet()) {
+            int itemId = entry.getKey().getId();
+            int needed = getOrderUpToLevel(itemId) - entry.getValue() - onOrder.getOrDefault(itemId, 0);
+            if (needed <= 0) continue;
+            Supplier supplier = supplierService.findCheapestSupplier(itemId);
+            if (supplier == null) continue;
+            if (!linesBySupplier.containsKey(supplier.getId()) && linesBySupplier.size() == maxOrdersPerSweep) {
+                continue; // Rate limit reached; this supplier's items wait for the next sweep
+            }
+            linesBySupplier
+                .computeIfAbsent(supplier.getId(), k -> new ArrayList<>())
+                .add(new OrderLine(supplier.getId(), itemId, needed));
+        }
+
+        // Place them as one batch; an order whose supplier dropped an item meanwhile
+        // fails alone and is retried by the next sweep
+        List<OrderRequest> requests = new ArrayList<>(linesBySupplier.size());
+        for (List<OrderLine> lines : linesBySupplier.values()) {
+            requests.add(new OrderRequest(lines, true));
+        }
+        List<Integer> placed = new ArrayList<>();
+        for (OrderResult result : orderService.createOrders(requests, true)) {
+            if (result.isSuccess()) placed.add(result.getOrder().getId());
+        }
+        return placed;
+    }
+
+    /**
+     * Adds up the quantities of each item on purchase orders not yet delivered.
+     */
+    private IntIntMap getQuantitiesOnOrder() {
+        IntIntMap onOrder = new IntIntMap();
+        for (Order.Status status : OUTSTANDING) {
+            for (Order order : orderService.getOrders(FinancialTransaction.Type.PURCHASE, status, null, null)) {
+                for (OrderLine line : order.getLines()) {
+                    int itemId = line.getItemId();
+                    onOrder.put(itemId, onOrder.getOrDefault(itemId, 0) + line.getQuantity());
+                }
+            }
+        }
+        return onOrder;
+    }
+
+    /**
+     * Get the stock level an item is restocked up to.
+     *
+     * @param itemId the item ID
+     * @return the item's own level, or its low stock threshold times the order-up-to factor
+     */
+    public synchronized int getOrderUpToLevel(int itemId) {
+        int level = orderUpToLevels.getOrDefault(itemId, -1);
+        if (level >= 0) return level;
+        return inventoryService.getLowStockThreshold(itemId) * getOrderUpToFactor();
+    }
+
+    /**
+     * Set the stock level a specific item is restocked up to.
+     *
+     * @param itemId the item ID
+     * @param level  the order-up-to level
+     */
+    public synchronized void setOrderUpToLevel(int itemId, int level) {
+        if (level < 0) {
+            throw new IllegalArgumentException("Order-up-to level must be >= 0.");
+        }
+        orderUpToLevels.put(itemId, level);
+    }
+
+    /**
+     * Get the multiple of the low stock threshold used for items without their own level.
+     */
+    public synchronized int getOrderUpToFactor() {
+        return orderUpToFactor;
+    }
+
+    /**
+     * Set the multiple of the low stock threshold used for items without their own level.
+     */
+    public synchronized void setOrderUpToFactor(int factor) {
+        if (factor < 1) {
+            throw new IllegalArgumentException("Order-up-to factor must be >= 1.");
+        }
+        orderUpToFactor = factor;
+    }
+
+    /**
+     * Set the most purchase orders a single sweep may place.
+     */
+    public synchronized void setMaxOrdersPerSweep(int maxOrders) {
+        if (maxOrders <= 0) {
+            throw new IllegalArgumentException("Max orders per sweep must be > 0.");
+        }
+        maxOrdersPerSweep = maxOrders;
+    }
+}
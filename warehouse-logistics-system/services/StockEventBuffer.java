@@ -0,0 +1,125 @@
+package services;
+
+import java.util.Arrays;
+
+import models.StockChangeCause;
+
+/**
+ * Holds back the stock events a thread produces while it holds item locks.
+ *
+ * Publishing to a {@link StockEventRing} can wait for a slow subscriber, which
+ * must never happen while lock stripes are held: every sale on those stripes
+ * would stall, and a subscriber that places a sale from its own handler would
+ * deadlock against the publisher. Locked sections therefore hold their events
+ * here, and they are published, in order, once the locks have been released.
+ * Each thread has its own buffer, so no locking is needed.
+ */
+final class StockEventBuffer {
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final StockEventRing ring;
+    private final ThreadLocal<Pending> pending = ThreadLocal.withInitial(Pending::new);
+
+    /**
+     * The events held back by one thread.
+     */
+    private static final class Pending {
+        int depth; // Nesting level of open sections; events are held while above zero
+        int size;
+        int[] itemIds = new int[INITIAL_CAPACITY];
+        int[] deltas = new int[INITIAL_CAPACITY];
+        int[] newQuantities = new int[INITIAL_CAPACITY];
+        int[] orderIds = new int[INITIAL_CAPACITY];
+        StockChangeCause[] causes = new StockChangeCause[INITIAL_CAPACITY];
+
+        void add(int itemId, int delta, int newQuantity, StockChangeCause cause, int orderId) {
+            if (size == itemIds.length) {
+                int capacity = size * 2;
+                itemIds = Arrays.copyOf(itemIds, capacity);
+                deltas = Arrays.copyOf(deltas, capacity);
+                newQuantities = Arrays.copyOf(newQuantities, capacity);
+                orderIds = Arrays.copyOf(orderIds, capacity);
+                causes = Arrays.copyOf(causes, capacity);
+            }
+            itemIds[size] = itemId;
+            deltas[size] = delta;
+            newQuantities[size] = newQuantity;
+            orderIds[size] = orderId;
+            causes[size] = cause;
+            size++;
+        }
+    }
+
+    /**
+     * Constructs a buffer in front of the given ring.
+     *
+     * @param ring the ring the events are finally published to
+     */
+    StockEventBuffer(StockEventRing ring) {
+        this.ring = ring;
+    }
+
+    /**
+     * Starts holding back this thread's events. Call once the locks are taken,
+     * and pair every call with {@link #publishHeld()} after releasing them.
+     */
+    void hold() {
+        pending.get().depth++;
+    }
+
+    /**
+     * Ends the innermost held section and, once no section is open, publishes
+     * every held event in the order it was produced.
+     */
+    void publishHeld() {
+        Pending events = pending.get();
+        if (--events.depth > 0) return;
+        int count = events.size;
+        events.size = 0;
+        for (int i = 0; i < count; i++) {
+            ring.publish(events.itemIds[i], events.deltas[i], events.newQuantities[i],
+                events.causes[i], events.orderIds[i]);
+            events.causes[i] = null;
+        }
+    }
+
+    /**
+     * Returns how many events this thread is holding, to mark where a group of
+     * events starts for {@link #setOrderId(int, int, int)}.
+     *
+     * @return the number of held events
+     */
+    int heldCount() {
+        return pending.get().size;
+    }
+
+    /**
+     * Sets the order ID of some of this thread's held events, for example once
+     * an order's stock is secured and its ID has been taken.
+     *
+     * @param from    the index of the first event, as returned by {@link #heldCount()}
+     * @param to      the index after the last event
+     * @param orderId the order responsible
+     */
+    void setOrderId(int from, int to, int orderId) {
+        Arrays.fill(pending.get().orderIds, from, to, orderId);
+    }
+
+    /**
+     * Publishes an event now, or holds it if this thread is inside a held section.
+     *
+     * @param itemId      the ID of the item that changed
+     * @param delta       the change in quantity
+     * @param newQuantity the quantity after the change
+     * @param cause       why the quantity changed
+     * @param orderId     the order responsible, or 0 if none
+     */
+    void publish(int itemId, int delta, int newQuantity, StockChangeCause cause, int orderId) {
+        Pending events = pending.get();
+        if (events.depth > 0) {
+            events.add(itemId, delta, newQuantity, cause, orderId);
+        } else {
+            ring.publish(itemId, delta, newQuantity, cause, orderId);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package services;
+
+import models.StockChangeCause;
+
+/**
+ * Receives stock change events read from a {@link StockEventRing}.
+ * Events are passed as primitive values so reading them allocates nothing.
+ */
+@FunctionalInterface
+public interface StockEventHandler {
+
+    /**
+     * Handles one stock change.
+     *
+     * @param sequence    the event's position in the stream, starting at 0
+     * @param itemId      the ID of the inventory item that changed
+     * @param delta       the change in quantity (negative for stock leaving)
+     * @param newQuantity the item's quantity after the change
+     * @param cause       why the quantity changed
+     * @param orderId     the order responsible for the change, or 0 if none
+     */
+    void onStockEvent(long sequence, int itemId, int delta, int newQuantity, StockChangeCause cause, int orderId);
+}
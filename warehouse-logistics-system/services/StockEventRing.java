@@ -0,0 +1,258 @@
+package services;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import models.StockChangeCause;
+
+/**
+ * A bounded, preallocated ring buffer of stock change events.
+ *
+ * Every change to an inventory item's quantity is written here as an
+ * (itemId, delta, newQuantity, cause, orderId) record. Records are stored in
+ * parallel primitive arrays that are allocated once, so publishing an event
+ * allocates nothing. Any number of threads may publish at once.
+ *
+ * Consumers call {@link #subscribe()} and then read events at their own pace,
+ * either by polling their {@link Subscription} or by starting a background
+ * consumer thread. Each subscription tracks its own position. If the slowest
+ * subscription falls a full buffer behind, publishers wait for it to catch up
+ * (back-pressure), so no subscriber ever misses an event.
+ */
+public class StockEventRing {
+    private static final StockChangeCause[] CAUSES = StockChangeCause.values();
+    private static final long IDLE_PARK_NANOS = 100_000; // Consumer sleep when no events (0.1 ms)
+
+    private final int capacity;
+    private final int mask;
+    private final int[] itemIds;
+    private final int[] deltas;
+    private final int[] newQuantities;
+    private final int[] orderIds;
+    private final byte[] causes;
+    private final AtomicLongArray published; // Sequence last written into each slot
+
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile long gatingSequence; // Cached position of the slowest subscription
+    private final LongAdder publisherWaits = new LongAdder();
+
+    /**
+     * Constructs a ring buffer.
+     *
+     * @param capacity the number of events that can be buffered, rounded up to a power of two
+     */
+    public StockEventRing(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        this.capacity = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.mask = this.capacity - 1;
+        itemIds = new int[this.capacity];
+        deltas = new int[this.capacity];
+        newQuantities = new int[this.capacity];
+        orderIds = new int[this.capacity];
+        causes = new byte[this.capacity];
+        published = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    /**
+     * Publishes a stock change event, waiting if the slowest subscriber is a full buffer behind.
+     *
+     * @param itemId      the ID of the item that changed
+     * @param delta       the change in quantity
+     * @param newQuantity the quantity after the change
+     * @param cause       why the quantity changed
+     * @param orderId     the order responsible, or 0 if none
+     */
+    public void publish(int itemId, int delta, int newQuantity, StockChangeCause cause, int orderId) {
+        long sequence = nextSequence.getAndIncrement();
+        if (sequence - gatingSequence >= capacity) {
+            awaitCapacity(sequence);
+        }
+
+        int slot = (int) (sequence & mask);
+        itemIds[slot] = itemId;
+        deltas[slot] = delta;
+        newQuantities[slot] = newQuantity;
+        orderIds[slot] = orderId;
+        causes[slot] = (byte) cause.ordinal();
+        published.set(slot, sequence); // Makes the fields above visible to consumers
+    }
+
+    /**
+     * Refreshes the cached gate and, only if the slowest subscriber really still
+     * holds the slot, counts a wait and parks until it moves on.
+     */
+    private void awaitCapacity(long sequence) {
+        boolean waited = false;
+        while (true) {
+            long slowest = slowestSubscriberSequence(sequence);
+            gatingSequence = slowest;
+            if (sequence - slowest < capacity) return;
+            if (!waited) {
+                publisherWaits.increment();
+                waited = true;
+            }
+            LockSupport.parkNanos(1_000);
+        }
+    }
+
+    private long slowestSubscriberSequence(long defaultSequence) {
+        long slowest = defaultSequence;
+        for (Subscription subscription : subscriptions) {
+            slowest = Math.min(slowest, subscription.nextToRead.get());
+        }
+        return slowest;
+    }
+
+    /**
+     * Creates a subscription that receives every event published from now on.
+     *
+     * @return the new subscription
+     */
+    public Subscription subscribe() {
+        Subscription subscription = new Subscription();
+        subscriptions.add(subscription);
+        // Start after everything already claimed so the subscriber never reads a stale slot
+        subscription.nextToRead.set(nextSequence.get());
+        return subscription;
+    }
+
+    /**
+     * Creates a subscription consumed by its own daemon thread, which passes every
+     * event to the handler as soon as it is published. If the handler throws, the
+     * exception goes to the thread's uncaught exception handler and the thread moves
+     * on to the next event. The subscription is closed if the thread ever stops, so
+     * it cannot hold back publishers.
+     *
+     * @param name    the name of the consumer thread
+     * @param handler the handler to receive events
+     * @return the subscription; close it to stop the thread
+     */
+    public Subscription subscribe(String name, StockEventHandler handler) {
+        Subscription subscription = subscribe();
+        Thread consumer = new Thread(() -> {
+            Thread self = Thread.currentThread();
+            try {
+                while (!subscription.isClosed()) {
+                    try {
+                        if (subscription.poll(handler, capacity) == 0) {
+                            LockSupport.parkNanos(IDLE_PARK_NANOS);
+                        }
+                    } catch (RuntimeException e) {
+                        self.getUncaughtExceptionHandler().uncaughtException(self, e);
+                    }
+                }
+            } finally {
+                subscription.close();
+            }
+        }, name);
+        consumer.setDaemon(true);
+        consumer.start();
+        return subscription;
+    }
+
+    /**
+     * Returns the total number of events published so far.
+     *
+     * @return the published event count
+     */
+    public long getPublishedCount() {
+        return nextSequence.get();
+    }
+
+    /**
+     * Returns how many times a publisher had to wait for a slow subscriber.
+     *
+     * @return the back-pressure wait count
+     */
+    public long getPublisherWaitCount() {
+        return publisherWaits.sum();
+    }
+
+    /**
+     * Returns the buffer capacity.
+     *
+     * @return the maximum number of unread events per subscriber
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * A consumer's position in the event stream.
+     */
+    public class Subscription implements AutoCloseable {
+        private final AtomicLong nextToRead = new AtomicLong();
+        private volatile boolean closed;
+
+        private Subscription() {
+        }
+
+        /**
+         * Passes available events to the handler, in order. An event whose handler
+         * throws still counts as read, and the exception is passed to the caller.
+         *
+         * @param handler   the handler to receive events
+         * @param maxEvents the maximum number of events to read in this call
+         * @return the number of events handled
+         */
+        public int poll(StockEventHandler handler, int maxEvents) {
+            long next = nextToRead.get();
+            int handled = 0;
+            while (handled < maxEvents && !closed) {
+                int slot = (int) (next & mask);
+                if (published.get(slot) != next) break; // Not published yet
+
+                try {
+                    handler.onStockEvent(next, itemIds[slot], deltas[slot], newQuantities[slot],
+                        CAUSES[causes[slot]], orderIds[slot]);
+                } finally {
+                    next++;
+                    handled++;
+                    nextToRead.lazySet(next); // Frees the slot for publishers, even if the handler threw
+                }
+            }
+            return handled;
+        }
+
+        /**
+         * Returns how many published events this subscription has not yet read.
+         *
+         * @return the number of events behind the newest event
+         */
+        public long getLag() {
+            return Math.max(0, nextSequence.get() - nextToRead.get());
+        }
+
+        /**
+         * Returns the sequence of the next event this subscription will read.
+         *
+         * @return the next sequence number
+         */
+        public long getPosition() {
+            return nextToRead.get();
+        }
+
+        public boolean isClosed() {
+            return closed;
+        }
+
+        /**
+         * Stops this subscription so that it no longer holds back publishers.
+         */
+        @Override
+        public void close() {
+            closed = true;
+            subscriptions.remove(this);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package services;
+
+import models.InventoryItem;
+
+/**
+ * The stock quantity of every inventory item, held in an {@link IntIntMap}
+ * so reads and writes never box or allocate.
+ *
+ * Quantities change on every sale and delivery, from many threads, so the table
+ * is guarded by lock stripes rather than one lock: changing the quantity of an
+ * item already present takes only that item's stripe, and updates to different
+ * items run in parallel. Adding or removing an item, which may move other
+ * entries, takes every stripe.
+ */
+class StockLevelTable {
+    private static final int LOCK_STRIPES = 64;
+
+    private final StripedLocks locks = new StripedLocks(LOCK_STRIPES);
+    private final int[] allStripes = locks.allStripes();
+    private final IntIntMap quantities = new IntIntMap();
+
+    /**
+     * Sets the quantity stored for an item, inserting it if necessary.
+     *
+     * @param itemId   the item ID
+     * @param quantity the quantity to store
+     */
+    void put(int itemId, int quantity) {
+        int stripe = locks.lock(itemId);
+        try {
+            if (quantities.replace(itemId, quantity)) return;
+        } finally {
+            locks.unlock(stripe);
+        }
+        locks.lock(allStripes);
+        try {
+            quantities.put(itemId, quantity);
+        } finally {
+            locks.unlock(allStripes);
+        }
+    }
+
+    /**
+     * Stores an item's live quantity, if the item is in the table. The quantity is
+     * read while holding the item's stripe, so when several threads refresh the
+     * same item the table ends up with the latest quantity, whatever order they
+     * arrive in.
+     *
+     * @param item the item whose quantity changed
+     */
+    void refresh(InventoryItem item) {
+        int stripe = locks.lock(item.getId());
+        try {
+            quantities.replace(item.getId(), item.getQuantity());
+        } finally {
+            locks.unlock(stripe);
+        }
+    }
+
+    /**
+     * Returns the quantity stored for an item.
+     *
+     * @param itemId       the item ID
+     * @param defaultValue the value to return if the item is not present
+     * @return the stored quantity, or {@code defaultValue} if absent
+     */
+    int getOrDefault(int itemId, int defaultValue) {
+        int stripe = locks.lock(itemId);
+        try {
+            return quantities.getOrDefault(itemId, defaultValue);
+        } finally {
+            locks.unlock(stripe);
+        }
+    }
+
+    /**
+     * Returns whether the table holds a quantity for the given item.
+     *
+     * @param itemId the item ID
+     * @return true if the item is present
+     */
+    boolean contains(int itemId) {
+        int stripe = locks.lock(itemId);
+        try {
+            return quantities.containsKey(itemId);
+        } finally {
+            locks.unlock(stripe);
+        }
+    }
+
+    /**
+     * Removes an item from the table.
+     *
+     * @param itemId the item ID
+     */
+    void remove(int itemId) {
+        locks.lock(allStripes);
+        try {
+            quantities.remove(itemId);
+        } finally {
+            locks.unlock(allStripes);
+        }
+    }
+
+    /**
+     * Passes every stored (itemId, quantity) pair to the visitor.
+     * The visitor runs while the table is locked and must not modify inventory.
+     *
+     * @param visitor the callback to receive each entry
+     */
+    void forEach(StockLevelVisitor visitor) {
+        locks.lock(allStripes);
+        try {
+            quantities.forEach(visitor::visit);
+        } finally {
+            locks.unlock(allStripes);
+        }
+    }
+
+    /**
+     * Returns the number of items in the table.
+     *
+     * @return the entry count
+     */
+    int size() {
+        locks.lock(allStripes);
+        try {
+            return quantities.size();
+        } finally {
+            locks.unlock(allStripes);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package services;
+
+/**
+ * Callback used to read stock levels without boxing or allocating a map.
+ * See {@link InventoryService#forEachStockLevel(StockLevelVisitor)}.
+ */
+@FunctionalInterface
+public interface StockLevelVisitor {
+
+    /**
+     * Receives the stock level of a single item.
+     *
+     * @param itemId   the ID of the inventory item
+     * @param quantity the quantity currently in stock
+     */
+    void visit(int itemId, int quantity);
+}
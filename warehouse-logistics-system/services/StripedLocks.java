@@ -0,0 +1,115 @@
+package services;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of locks shared between item IDs ("lock striping").
+ *
+ * Each item ID maps to one stripe, so operations touching different items
+ * usually take different locks and run in parallel, while memory use stays
+ * constant however large the catalogue grows. Callers that need several
+ * items at once must use {@link #stripesFor(int[])}, which returns the
+ * stripes in ascending order so every thread acquires them in the same order
+ * and deadlock is impossible.
+ */
+class StripedLocks {
+    private final ReentrantLock[] stripes;
+
+    /**
+     * Constructs a set of stripes.
+     *
+     * @param stripeCount the number of locks, rounded up to a power of two
+     */
+    StripedLocks(int stripeCount) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Returns the distinct stripes guarding the given item IDs, sorted ascending.
+     *
+     * @param itemIds the item IDs that will be locked
+     * @return the stripe indexes to pass to {@link #lock(int[])}
+     */
+    int[] stripesFor(int[] itemIds) {
+        int[] indexes = new int[itemIds.length];
+        for (int i = 0; i < itemIds.length; i++) {
+            indexes[i] = stripeOf(itemIds[i]);
+        }
+        Arrays.sort(indexes);
+
+        int distinct = 0;
+        for (int i = 0; i < indexes.length; i++) {
+            if (i == 0 || indexes[i] != indexes[i - 1]) {
+                indexes[distinct++] = indexes[i];
+            }
+        }
+        return Arrays.copyOf(indexes, distinct);
+    }
+
+    /**
+     * Acquires the given stripes in order.
+     *
+     * @param stripeIndexes sorted, distinct stripe indexes from {@link #stripesFor(int[])}
+     */
+    void lock(int[] stripeIndexes) {
+        for (int index : stripeIndexes) {
+            stripes[index].lock();
+        }
+    }
+
+    /**
+     * Releases the given stripes in reverse order.
+     *
+     * @param stripeIndexes the stripe indexes previously passed to {@link #lock(int[])}
+     */
+    void unlock(int[] stripeIndexes) {
+        for (int i = stripeIndexes.length - 1; i >= 0; i--) {
+            stripes[stripeIndexes[i]].unlock();
+        }
+    }
+
+    /**
+     * Acquires the stripe guarding a single item.
+     *
+     * @param itemId the item ID
+     * @return the stripe index to pass to {@link #unlock(int)}
+     */
+    int lock(int itemId) {
+        int index = stripeOf(itemId);
+        stripes[index].lock();
+        return index;
+    }
+
+    /**
+     * Releases a stripe acquired with {@link #lock(int)}.
+     *
+     * @param stripeIndex the stripe index returned by {@link #lock(int)}
+     */
+    void unlock(int stripeIndex) {
+        stripes[stripeIndex].unlock();
+    }
+
+    /**
+     * Returns every stripe index in ascending order, for operations that must
+     * exclude all items at once.
+     *
+     * @return the stripe indexes to pass to {@link #lock(int[])}
+     */
+    int[] allStripes() {
+        int[] indexes = new int[stripes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = i;
+        }
+        return indexes;
+    }
+
+    private int stripeOf(int itemId) {
+        int h = itemId * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (stripes.length - 1);
+    }
+}
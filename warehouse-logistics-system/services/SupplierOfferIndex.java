@@ -0,0 +1,117 @@
+package services;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import models.OrderLine;
+import models.Supplier;
+import models.SupplierItem;
+
+/**
+ * Reverse catalogue index from an inventory item to the suppliers offering it.
+ *
+ * Each item has a skip list of offers ordered by price (then supplier ID), so
+ * the cheapest supplier is found in O(log n) and the k cheapest in O(log n + k),
+ * without visiting every supplier's catalogue. An offer records the price it was
+ * indexed at, so a price change is applied by removing the old offer and adding
+ * a new one. Updates are serialised; queries do not lock.
+ */
+class SupplierOfferIndex {
+    private static final Comparator<Offer> BY_PRICE = Comparator
+        .comparingDouble((Offer offer) -> offer.price)
+        .thenComparingInt(offer -> offer.supplier.getId());
+
+    /**
+     * One supplier's offer of an item at a fixed price.
+     */
+    private static final class Offer {
+        final Supplier supplier;
+        final double price;
+
+        Offer(Supplier supplier, double price) {
+            this.supplier = supplier;
+            this.price = price;
+        }
+    }
+
+    private final Map<Integer, NavigableSet<Offer>> offersByItem = new ConcurrentHashMap<>();
+    private final Map<Long, Offer> offersByKey = new ConcurrentHashMap<>(); // Keyed by OrderLine.packKey(supplier, item)
+
+    /**
+     * Adds or reprices a supplier's offer of an item, using the item's current price.
+     *
+     * @param supplier the supplier
+     * @param item     the supplier's item
+     */
+    synchronized void put(Supplier supplier, SupplierItem item) {
+        remove(supplier.getId(), item.getId());
+        Offer offer = new Offer(supplier, item.getPrice());
+        offersByKey.put(OrderLine.packKey(supplier.getId(), item.getId()), offer);
+        offersByItem.computeIfAbsent(item.getId(), k -> new ConcurrentSkipListSet<>(BY_PRICE)).add(offer);
+    }
+
+    /**
+     * Removes a supplier's offer of an item, if it is indexed.
+     *
+     * @param supplierId the supplier ID
+     * @param itemId     the item ID
+     */
+    synchronized void remove(int supplierId, int itemId) {
+        Offer offer = offersByKey.remove(OrderLine.packKey(supplierId, itemId));
+        if (offer == null) return;
+        NavigableSet<Offer> offers = offersByItem.get(itemId);
+        offers.remove(offer);
+        if (offers.isEmpty()) {
+            offersByItem.remove(itemId);
+        }
+    }
+
+    /**
+     * Removes every offer made by a supplier.
+     *
+     * @param supplier the supplier being deleted
+     */
+    synchronized void removeAll(Supplier supplier) {
+        for (SupplierItem item : supplier.getItems()) {
+            remove(supplier.getId(), item.getId());
+        }
+    }
+
+    /**
+     * Returns the supplier offering an item most cheaply.
+     *
+     * @param itemId the inventory item ID
+     * @return the cheapest supplier, or null if no supplier offers the item
+     */
+    Supplier cheapest(int itemId) {
+        NavigableSet<Offer> offers = offersByItem.get(itemId);
+        if (offers == null) return null;
+        for (Offer offer : offers) {
+            return offer.supplier; // Iterating rather than first(), which throws if emptied meanwhile
+        }
+        return null;
+    }
+
+    /**
+     * Returns the suppliers offering an item, cheapest first.
+     *
+     * @param itemId the inventory item ID
+     * @param limit  the maximum number of suppliers to return
+     * @return up to limit suppliers, in ascending order of price
+     */
+    List<Supplier> cheapest(int itemId, int limit) {
+        NavigableSet<Offer> offers = offersByItem.get(itemId);
+        List<Supplier> result = new ArrayList<>(Math.min(limit, 16));
+        if (offers == null) return result;
+        for (Offer offer : offers) {
+            if (result.size() == limit) break;
+            result.add(offer.supplier);
+        }
+        return result;
+    }
+}
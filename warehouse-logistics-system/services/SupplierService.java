@@ -2,11 +2,18 @@ package services;
 
 import models.Supplier;
 import models.InventoryItem;
+import models.OrderLine;
+import models.PriceStats;
+import models.SnapshotList;
 import models.SupplierItem;
 import models.SupplierOrderRecord;
+import models.SupplierSpendSummary;
 
-import java.util.ArrayList;
+import java.time.Clock;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Service class responsible for managing suppliers and their associated items.
@@ -14,23 +21,46 @@ import java.util.List;
  * Provides functionality to add, update, and delete suppliers, manage supplier items,
  * and create records for supplier orders. This service also coordinates with
  * InventoryService to link inventory items with supplier data.
+ * Suppliers are indexed by ID as well as listed in creation order, so lookups
+ * take constant time however many suppliers there are. A reverse index from
+ * each inventory item to the suppliers offering it, ordered by price, answers
+ * "who sells this most cheaply" without scanning every catalogue. Every price
+ * set for a supplier item is kept in a compact {@link PriceSeries}, so past
+ * prices can be audited after they have been changed.
  */
 public class SupplierService {
     private final InventoryService inventoryService;
-    private List<Supplier> suppliers;
+    private volatile SnapshotList<Supplier> suppliers; // All suppliers in creation order
+    private final Map<Integer, Supplier> suppliersById;
+    private final SupplierOfferIndex offerIndex;
+    private final Map<Long, PriceSeries> priceHistories; // Keyed by OrderLine.packKey(supplier, item)
+    private final Clock clock;
     private int nextId;
 
     // Constructor
     public SupplierService(InventoryService inventoryService) {
+        this(inventoryService, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Constructs a SupplierService that timestamps price changes using the given clock,
+     * for example a {@link VirtualTimeScheduler}'s clock in tests.
+     */
+    public SupplierService(InventoryService inventoryService, Clock clock) {
         this.inventoryService = inventoryService;
-        this.suppliers = new ArrayList<>();
+        this.clock = clock;
+        this.priceHistories = new ConcurrentHashMap<>();
+        this.suppliers = SnapshotList.empty();
+        this.suppliersById = new ConcurrentHashMap<>();
+        this.offerIndex = new SupplierOfferIndex();
         this.nextId = 1; // Start IDs from 1
     }
 
     // Supplier Management Operations
-    public Supplier addSupplier(String name, String email, String phone, String location) {
+    public synchronized Supplier addSupplier(String name, String email, String phone, String location) {
         Supplier newSupplier = new Supplier(nextId++, name, email, phone, location);
-        suppliers.add(newSupplier);
+        suppliers = suppliers.append(newSupplier);
+        suppliersById.put(newSupplier.getId(), newSupplier);
         return newSupplier;
     }
 
@@ -72,10 +102,11 @@ public class SupplierService {
         return false;
     }
 
-    public boolean deleteSupplier(int id) {
-        Supplier supplier = findSupplierById(id);
+    public synchronized boolean deleteSupplier(int id) {
+        Supplier supplier = suppliersById.remove(id);
         if (supplier != null) {
-            suppliers.remove(supplier);
+            suppliers = suppliers.without(s -> s == supplier);
+            offerIndex.removeAll(supplier);
             return true;
         }
         return false;
@@ -83,16 +114,35 @@ public class SupplierService {
 
     // Supplier Retrieval Operations
     public List<Supplier> getAllSuppliers() {
-        return new ArrayList<>(suppliers); // Return a copy for safety
+        return suppliers; // Immutable snapshot, safe to share without copying
     }
 
     public Supplier findSupplierById(int id) {
-        for (Supplier supplier : suppliers) {
-            if (supplier.getId() == id) {
-                return supplier;
-            }
+        return suppliersById.get(id);
+    }
+
+    /**
+     * Finds the supplier offering an inventory item at the lowest price.
+     *
+     * @param inventoryItemId The inventory item ID.
+     * @return The cheapest supplier, or null if no supplier offers the item.
+     */
+    public Supplier findCheapestSupplier(int inventoryItemId) {
+        return offerIndex.cheapest(inventoryItemId);
+    }
+
+    /**
+     * Returns the suppliers offering an inventory item, cheapest first.
+     *
+     * @param inventoryItemId The inventory item ID.
+     * @param limit The maximum number of suppliers to return.
+     * @return Up to limit suppliers in ascending order of price.
+     */
+    public List<Supplier> getCheapestSuppliers(int inventoryItemId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be > 0.");
         }
-        return null;
+        return offerIndex.cheapest(inventoryItemId, limit);
     }
 
     public List<SupplierOrderRecord> getOrderHistoryForSupplier(int supplierId) {
@@ -100,7 +150,41 @@ public class SupplierService {
         if (supplier != null) {
             return supplier.getOrderHistory();
         }
-        return new ArrayList<>();
+        return List.of();
+    }
+
+    /**
+     * Returns one page of a supplier's order history, oldest first.
+     * The history only grows at the end, so a page number always refers to the same records.
+     * The page is a view of the history, not a copy.
+     *
+     * @param supplierId The supplier ID.
+     * @param page The zero-based page number.
+     * @param pageSize The maximum number of records per page.
+     * @return The records on the requested page, or an empty list if the supplier does not exist.
+     */
+    public List<SupplierOrderRecord> getOrderHistoryPage(int supplierId, int page, int pageSize) {
+        if (page < 0 || pageSize <= 0) {
+            throw new IllegalArgumentException("Page must be >= 0 and page size must be > 0.");
+        }
+        Supplier supplier = findSupplierById(supplierId);
+        if (supplier == null) return List.of();
+
+        List<SupplierOrderRecord> history = supplier.getOrderHistory();
+        int from = (int) Math.min((long) page * pageSize, history.size());
+        int to = (int) Math.min((long) from + pageSize, history.size());
+        return history.subList(from, to);
+    }
+
+    /**
+     * Returns a supplier's running spend totals.
+     *
+     * @param supplierId The supplier ID.
+     * @return The spend summary, or null if the supplier does not exist.
+     */
+    public SupplierSpendSummary getSpendSummary(int supplierId) {
+        Supplier supplier = findSupplierById(supplierId);
+        return supplier == null ? null : supplier.getSpendSummary();
     }
 
     // Supplier Item Management Operations
@@ -122,6 +206,8 @@ public class SupplierService {
         );
     
         supplier.addItem(supplierItem);
+        offerIndex.put(supplier, supplierItem);
+        recordPrice(supplierId, supplierItem);
         return supplierItem;
     }
 
@@ -133,6 +219,8 @@ public class SupplierService {
         if (item == null) return false;
 
         item.setPrice(newPrice);
+        offerIndex.put(supplier, item);
+        recordPrice(supplierId, item);
         return true;
     }
     
@@ -144,6 +232,50 @@ public class SupplierService {
         if (item == null) return false;
 
         supplier.removeItemById(itemId);
+        offerIndex.remove(supplierId, itemId);
         return true;
     }
-}
\ No newline at end of file
+
+    /**
+     * Adds a supplier item's current price to its price history.
+     */
+    private void recordPrice(int supplierId, SupplierItem item) {
+        priceHistories
+            .computeIfAbsent(OrderLine.packKey(supplierId, item.getId()), k -> new PriceSeries())
+            .record(clock.instant().getEpochSecond(), item.getPrice());
+    }
+
+    /**
+     * Returns the price a supplier charged for an item at the end of a given date.
+     * Prices are kept to the nearest penny. History is kept after an item or supplier is removed.
+     *
+     * @param supplierId The supplier ID.
+     * @param itemId The item ID.
+     * @param date The date to look up.
+     * @return The price, or null if the item had no price from the supplier by then.
+     */
+    public Double getPriceOnDate(int supplierId, int itemId, LocalDate date) {
+        PriceSeries history = priceHistories.get(OrderLine.packKey(supplierId, itemId));
+        return history == null ? null : history.priceAt(endOfDay(date));
+    }
+
+    /**
+     * Returns the lowest, highest and average price a supplier charged for an item
+     * between two dates: the price at the start plus every change up to the end.
+     *
+     * @param supplierId The supplier ID.
+     * @param itemId The item ID.
+     * @param from The first date (inclusive).
+     * @param to The last date (inclusive).
+     * @return The statistics, or null if the item had no price from the supplier in that period.
+     */
+    public PriceStats getPriceStats(int supplierId, int itemId, LocalDate from, LocalDate to) {
+        PriceSeries history = priceHistories.get(OrderLine.packKey(supplierId, itemId));
+        if (history == null) return null;
+        return history.stats(from.atStartOfDay(clock.getZone()).toEpochSecond(), endOfDay(to));
+    }
+
+    private long endOfDay(LocalDate date) {
+        return date.plusDays(1).atStartOfDay(clock.getZone()).toEpochSecond() - 1;
+    }
+}
@@ -7,8 +7,12 @@ import org.junit.jupiter.api.Test;
 import services.*;
 import models.*;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
 import java.util.HashMap;
 import java.util.List;
 
@@ -96,6 +100,164 @@ public class SupplierServiceTest {
         assertNull(supplier.getItemById(supplierItem.getId()), "Item should be removed from supplier.");
     }
 
+    @Test
+    public void testReplaceItemAfterRemoval() {
+        inventoryService.addInventoryItem(3, "Item C", "Description of Item C", 30.0, 10);
+        Supplier supplier = supplierService.addSupplier("Supplier 6", "supplier6@example.com", "777777777", "Location 6");
+        supplierService.createSupplierItem(supplier.getId(), 1, 5.0);
+        supplierService.createSupplierItem(supplier.getId(), 2, 15.0);
+        supplierService.createSupplierItem(supplier.getId(), 3, 25.0);
+
+        supplierService.removeSupplierItem(supplier.getId(), 1);
+        // Item 3 has moved up a place; adding it again must replace it, not another item
+        SupplierItem replacement = supplierService.createSupplierItem(supplier.getId(), 3, 20.0);
+
+        assertEquals(2, supplier.getItems().size());
+        assertEquals(2, supplier.getItems().get(0).getId());
+        assertSame(replacement, supplier.getItems().get(1));
+        assertSame(replacement, supplier.getItemById(3));
+        assertNull(supplier.getItemById(1));
+    }
+
+    @Test
+    public void testFindSupplierByIdAfterDeletion() {
+        Supplier first = supplierService.addSupplier("Supplier A", "a@example.com", "1", "Location A");
+        Supplier second = supplierService.addSupplier("Supplier B", "b@example.com", "2", "Location B");
+
+        assertTrue(supplierService.deleteSupplier(first.getId()));
+        assertFalse(supplierService.deleteSupplier(first.getId()), "A deleted supplier cannot be deleted again.");
+
+        assertSame(second, supplierService.findSupplierById(second.getId()));
+        assertEquals(List.of(second), supplierService.getAllSuppliers());
+    }
+
+    @Test
+    public void testCheapestSuppliersFollowPriceChanges() {
+        Supplier first = supplierService.addSupplier("Supplier A", "a@example.com", "1", "Location A");
+        Supplier second = supplierService.addSupplier("Supplier B", "b@example.com", "2", "Location B");
+        Supplier third = supplierService.addSupplier("Supplier C", "c@example.com", "3", "Location C");
+        supplierService.createSupplierItem(first.getId(), 1, 9.0);
+        supplierService.createSupplierItem(second.getId(), 1, 7.0);
+        supplierService.createSupplierItem(third.getId(), 1, 8.0);
+        supplierService.createSupplierItem(third.getId(), 2, 1.0);
+
+        assertSame(second, supplierService.findCheapestSupplier(1));
+        assertEquals(List.of(second, third), supplierService.getCheapestSuppliers(1, 2));
+
+        supplierService.updateSupplierPrice(first.getId(), 1, 6.0);
+        assertEquals(List.of(first, second, third), supplierService.getCheapestSuppliers(1, 10));
+
+        supplierService.removeSupplierItem(first.getId(), 1);
+        supplierService.deleteSupplier(second.getId());
+        assertEquals(List.of(third), supplierService.getCheapestSuppliers(1, 10));
+
+        supplierService.deleteSupplier(third.getId());
+        assertNull(supplierService.findCheapestSupplier(1));
+        assertNull(supplierService.findCheapestSupplier(2));
+    }
+
+    @Test
+    public void testSpendSummaryAndHistoryPages() {
+        Supplier supplier = supplierService.addSupplier("Supplier 7", "supplier7@example.com", "888888888", "Location 7");
+        assertEquals(0, supplierService.getSpendSummary(supplier.getId()).getOrderCount());
+
+        for (int i = 1; i <= 25; i++) {
+            supplier.addOrderRecord(new SupplierOrderRecord(i, LocalDate.of(2024, 1, i), 10.0 * i, Map.of(1, i, 2, 1)));
+        }
+
+        SupplierSpendSummary summary = supplierService.getSpendSummary(supplier.getId());
+        assertEquals(25, summary.getOrderCount());
+        assertEquals(3250.0, summary.getTotalSpend(), 0.001);
+        assertEquals(130.0, summary.getAverageOrderValue(), 0.001);
+        assertEquals(325 + 25, summary.getUnitCount());
+        assertEquals(LocalDate.of(2024, 1, 25), summary.getLastOrderDate());
+        assertEquals(325, supplier.getUnitsOrdered(1));
+        assertEquals(0, supplier.getUnitsOrdered(3));
+
+        List<SupplierOrderRecord> secondPage = supplierService.getOrderHistoryPage(supplier.getId(), 1, 10);
+        assertEquals(10, secondPage.size());
+        assertEquals(11, secondPage.get(0).getId());
+        assertEquals(5, supplierService.getOrderHistoryPage(supplier.getId(), 2, 10).size());
+        assertTrue(supplierService.getOrderHistoryPage(supplier.getId(), 3, 10).isEmpty());
+        assertTrue(supplierService.getOrderHistoryPage(999, 0, 10).isEmpty());
+        assertNull(supplierService.getSpendSummary(999));
+        assertThrows(IllegalArgumentException.class, () -> supplierService.getOrderHistoryPage(supplier.getId(), 0, 0));
+    }
+
+    @Test
+    public void testPriceHistoryKeepsOverwrittenPrices() {
+        VirtualTimeScheduler virtualTime = new VirtualTimeScheduler(Instant.parse("2024-01-01T09:00:00Z"), ZoneOffset.UTC);
+        SupplierService suppliers = new SupplierService(inventoryService, virtualTime.getClock());
+        Supplier supplier = suppliers.addSupplier("Supplier 8", "supplier8@example.com", "999999999", "Location 8");
+        suppliers.createSupplierItem(supplier.getId(), 1, 10.0);   // 1 Jan
+        virtualTime.advance(2, TimeUnit.DAYS);
+        suppliers.updateSupplierPrice(supplier.getId(), 1, 12.5); // 3 Jan
+        virtualTime.advance(2, TimeUnit.DAYS);
+        suppliers.updateSupplierPrice(supplier.getId(), 1, 9.99); // 5 Jan
+        suppliers.removeSupplierItem(supplier.getId(), 1);
+
+        assertNull(suppliers.getPriceOnDate(supplier.getId(), 1, LocalDate.of(2023, 12, 31)));
+        assertEquals(10.0, suppliers.getPriceOnDate(supplier.getId(), 1, LocalDate.of(2024, 1, 2)));
+        assertEquals(12.5, suppliers.getPriceOnDate(supplier.getId(), 1, LocalDate.of(2024, 1, 4)));
+        assertEquals(9.99, suppliers.getPriceOnDate(supplier.getId(), 1, LocalDate.of(2024, 2, 1)));
+
+        PriceStats stats = suppliers.getPriceStats(supplier.getId(), 1, LocalDate.of(2024, 1, 2), LocalDate.of(2024, 1, 3));
+        assertEquals(2, stats.getCount(), "The price on the first day plus one change");
+        assertEquals(10.0, stats.getMin());
+        assertEquals(12.5, stats.getMax());
+        assertEquals(11.25, stats.getAverage(), 0.001);
+        assertNull(suppliers.getPriceStats(supplier.getId(), 2, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 5)));
+    }
+
+    @Test
+    public void testPriceSeriesMatchesFullScan() {
+        PriceSeries series = new PriceSeries();
+        Random random = new Random(42);
+        int changes = 10_000;
+        long[] times = new long[changes];
+        long[] pence = new long[changes];
+        long time = 1_700_000_000L;
+        long price = 50_000;
+        for (int i = 0; i < changes; i++) {
+            time += random.nextInt(3) == 0 ? 0 : random.nextInt(200_000);
+            price = Math.max(1, price + random.nextInt(2001) - 1000);
+            times[i] = time;
+            pence[i] = price;
+            series.record(time, price / 100.0);
+        }
+        assertTrue(series.getEncodedLength() < changes * 6, "Changes should take a few bytes each");
+
+        for (int query = 0; query < 300; query++) {
+            long from = times[0] - 1000 + (long) (random.nextDouble() * (time - times[0] + 2000));
+            long to = from + random.nextInt(400_000_000);
+
+            int last = -1, first = -1;
+            for (int i = 0; i < changes; i++) {
+                if (times[i] <= to) last = i;
+                if (times[i] <= from) first = i;
+            }
+            Double expectedPrice = first < 0 ? null : pence[first] / 100.0;
+            assertEquals(expectedPrice, series.priceAt(from));
+
+            PriceStats stats = series.stats(from, to);
+            if (last < 0) {
+                assertNull(stats);
+                continue;
+            }
+            first = Math.max(first, 0);
+            long min = Long.MAX_VALUE, max = Long.MIN_VALUE, sum = 0;
+            for (int i = first; i <= last; i++) {
+                min = Math.min(min, pence[i]);
+                max = Math.max(max, pence[i]);
+                sum += pence[i];
+            }
+            assertEquals(last - first + 1, stats.getCount());
+            assertEquals(min / 100.0, stats.getMin());
+            assertEquals(max / 100.0, stats.getMax());
+            assertEquals(sum / 100.0 / (last - first + 1), stats.getAverage(), 1e-6);
+        }
+    }
+
     @Test
     public void testGetAllSuppliers() {
         supplierService.addSupplier("Supplier 7", "supplier7@example.com", "888888888", "Location 7");
@@ -105,6 +267,20 @@ public class SupplierServiceTest {
 
         assertEquals(2, suppliers.size(), "There should be 2 suppliers.");
     }
+
+    @Test
+    public void testGetAllSuppliersIsStableSnapshot() {
+        Supplier first = supplierService.addSupplier("Supplier 7", "supplier7@example.com", "888888888", "Location 7");
+        List<Supplier> before = supplierService.getAllSuppliers();
+
+        supplierService.addSupplier("Supplier 8", "supplier8@example.com", "999999999", "Location 8");
+        supplierService.deleteSupplier(first.getId());
+
+        assertEquals(1, before.size(), "Earlier snapshot should not see later changes.");
+        assertSame(first, before.get(0));
+        assertEquals("Supplier 8", supplierService.getAllSuppliers().get(0).getName());
+        assertThrows(UnsupportedOperationException.class, () -> before.add(first));
+    }
     
     @Test
     public void testGetOrderHistoryForSupplier() {
@@ -0,0 +1,236 @@
+package services;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link DeliveryScheduler} built on a hashed timing wheel.
+ *
+ * Time is divided into ticks, and the wheel is a ring of buckets, one per tick.
+ * A task is placed in the bucket its deadline falls into, together with the
+ * number of full turns of the wheel still to wait. Scheduling and cancelling
+ * are O(1): new and cancelled tasks are handed to the wheel thread through
+ * lock-free queues, and each bucket is a doubly linked list. Once per tick the
+ * wheel thread runs every due task in the current bucket as one batch.
+ *
+ * Tasks run on the wheel thread, so they should be short. Deadlines are
+ * accurate to one tick. A task that throws does not stop the wheel; the
+ * exception is passed to the failure handler, which by default is the wheel
+ * thread's uncaught exception handler and prints the full stack trace.
+ */
+public class TimerWheelDeliveryScheduler implements DeliveryScheduler {
+    public static final long DEFAULT_TICK_MILLIS = 100;
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    /**
+     * A scheduled task, linked into one bucket of the wheel.
+     */
+    private final class Task implements Timeout {
+        final Runnable action;
+        final long deadlineNanos; // Relative to startNanos
+        final AtomicInteger state = new AtomicInteger(PENDING);
+        long remainingRounds;
+        Bucket bucket;
+        Task next;
+        Task prev;
+
+        Task(Runnable action, long deadlineNanos) {
+            this.action = action;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) {
+                return false;
+            }
+            cancelled.add(this);
+            return true;
+        }
+    }
+
+    /**
+     * One slot of the wheel. Only the wheel thread touches buckets.
+     */
+    private static final class Bucket {
+        Task head;
+        Task tail;
+
+        void add(Task task) {
+            task.bucket = this;
+            if (head == null) {
+                head = tail = task;
+            } else {
+                tail.next = task;
+                task.prev = tail;
+                tail = task;
+            }
+        }
+
+        void remove(Task task) {
+            if (task.prev != null) task.prev.next = task.next; else head = task.next;
+            if (task.next != null) task.next.prev = task.prev; else tail = task.prev;
+            task.next = task.prev = null;
+            task.bucket = null;
+        }
+    }
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<Task> added = new ConcurrentLinkedQueue<>();
+    private final Queue<Task> cancelled = new ConcurrentLinkedQueue<>();
+    private final Thread worker;
+    private final long startNanos;
+    private volatile boolean running = true;
+    private volatile Thread.UncaughtExceptionHandler failureHandler; // Null for the wheel thread's own handler
+    private long tick; // Next tick to process; wheel thread only
+
+    /**
+     * Constructs a scheduler with a 100 ms tick and 512 buckets, and starts its thread.
+     */
+    public TimerWheelDeliveryScheduler() {
+        this(DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SIZE);
+    }
+
+    /**
+     * Constructs a scheduler and starts its thread.
+     *
+     * @param tickDuration the length of one tick, which is the timing precision
+     * @param unit         the unit of the tick duration
+     * @param wheelSize    the number of buckets, rounded up to a power of two
+     */
+    public TimerWheelDeliveryScheduler(long tickDuration, TimeUnit unit, int wheelSize) {
+        if (tickDuration <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("Tick duration and wheel size must be positive.");
+        }
+        tickNanos = unit.toNanos(tickDuration);
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        mask = size - 1;
+        startNanos = System.nanoTime();
+        worker = new Thread(this::run, "delivery-timer-wheel");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (!running) {
+            throw new IllegalStateException("Delivery scheduler has been shut down.");
+        }
+        long deadline = System.nanoTime() - startNanos + Math.max(0, unit.toNanos(delay));
+        Task scheduled = new Task(task, deadline);
+        added.add(scheduled);
+        return scheduled;
+    }
+
+    /**
+     * Sets the handler told about tasks that throw.
+     *
+     * @param failureHandler the handler, or null to use the wheel thread's uncaught exception handler
+     */
+    public void setFailureHandler(Thread.UncaughtExceptionHandler failureHandler) {
+        this.failureHandler = failureHandler;
+    }
+
+    @Override
+    public void shutdown() {
+        running = false;
+        worker.interrupt();
+        if (Thread.currentThread() != worker) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void run() {
+        while (running) {
+            long tickEnd = (tick + 1) * tickNanos;
+            long sleepNanos = tickEnd - (System.nanoTime() - startNanos);
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    if (!running) return;
+                }
+                continue;
+            }
+            removeCancelled();
+            transferAdded();
+            expire(wheel[(int) (tick & mask)], tickEnd);
+            tick++;
+        }
+    }
+
+    /**
+     * Places newly scheduled tasks into their buckets.
+     */
+    private void transferAdded() {
+        Task task;
+        while ((task = added.poll()) != null) {
+            if (task.state.get() != PENDING) continue;
+            long dueTick = Math.max(task.deadlineNanos / tickNanos, tick); // Overdue tasks run this tick
+            task.remainingRounds = (dueTick - tick) / wheel.length;
+            wheel[(int) (dueTick & mask)].add(task);
+        }
+    }
+
+    private void removeCancelled() {
+        Task task;
+        while ((task = cancelled.poll()) != null) {
+            if (task.bucket != null) {
+                task.bucket.remove(task);
+            }
+        }
+    }
+
+    /**
+     * Runs every task in the bucket whose deadline has passed and counts down the others.
+     */
+    private void expire(Bucket bucket, long tickEnd) {
+        Task task = bucket.head;
+        while (task != null) {
+            Task next = task.next;
+            if (task.remainingRounds <= 0 && task.deadlineNanos < tickEnd) {
+                bucket.remove(task);
+                if (task.state.compareAndSet(PENDING, EXPIRED)) {
+                    try {
+                        task.action.run();
+                    } catch (Throwable e) {
+                        reportFailure(e);
+                    }
+                }
+            } else if (task.state.get() == CANCELLED) {
+                bucket.remove(task);
+            } else {
+                task.remainingRounds--;
+            }
+            task = next;
+        }
+    }
+
+    private void reportFailure(Throwable failure) {
+        Thread.UncaughtExceptionHandler handler = failureHandler;
+        if (handler == null) {
+            handler = worker.getUncaughtExceptionHandler();
+        }
+        try {
+            handler.uncaughtException(worker, failure);
+        } catch (Throwable ignored) {
+            // A failing handler must not stop the wheel either
+        }
+    }
+}
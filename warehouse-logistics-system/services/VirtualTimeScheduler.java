@@ -0,0 +1,176 @@
+package services;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link DeliveryScheduler} driven by virtual time, for tests and simulations.
+ *
+ * Nothing runs on its own: time only moves when {@link #advance(long, TimeUnit)}
+ * is called, which runs every task falling due in that interval in deadline
+ * order, on the calling thread. The scheduler also provides a {@link Clock} that
+ * follows virtual time, so order dates move forward with it. Weeks of order
+ * lifecycle can therefore be simulated in moments, with repeatable results.
+ */
+public class VirtualTimeScheduler implements DeliveryScheduler {
+
+    /**
+     * A scheduled task, ordered by deadline and then by scheduling order.
+     */
+    private final class Task implements Timeout, Comparable<Task> {
+        final Runnable action;
+        final long deadlineNanos;
+        final long sequence;
+        boolean done;
+
+        Task(Runnable action, long deadlineNanos, long sequence) {
+            this.action = action;
+            this.deadlineNanos = deadlineNanos;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public boolean cancel() {
+            synchronized (VirtualTimeScheduler.this) {
+                if (done) return false;
+                done = true;
+                tasks.remove(this);
+                return true;
+            }
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            int byDeadline = Long.compare(deadlineNanos, other.deadlineNanos);
+            return byDeadline != 0 ? byDeadline : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private final Instant start;
+    private final ZoneId zone;
+    private final PriorityQueue<Task> tasks = new PriorityQueue<>();
+    private final Object advanceLock = new Object(); // Serialises advance; taken before the scheduler's own lock
+    private volatile long nowNanos; // Virtual time elapsed since start
+    private long nextSequence;
+    private boolean shutdown;
+
+    /**
+     * Constructs a scheduler whose virtual time starts now, in the system time zone.
+     */
+    public VirtualTimeScheduler() {
+        this(Instant.now(), ZoneId.systemDefault());
+    }
+
+    /**
+     * Constructs a scheduler whose virtual time starts at the given instant.
+     *
+     * @param start the virtual start time
+     * @param zone  the time zone used by the clock
+     */
+    public VirtualTimeScheduler(Instant start, ZoneId zone) {
+        this.start = start;
+        this.zone = zone;
+    }
+
+    @Override
+    public synchronized Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (shutdown) {
+            throw new IllegalStateException("Delivery scheduler has been shut down.");
+        }
+        Task scheduled = new Task(task, nowNanos + Math.max(0, unit.toNanos(delay)), nextSequence++);
+        tasks.add(scheduled);
+        return scheduled;
+    }
+
+    /**
+     * Moves virtual time forward, running each task that falls due on the way.
+     * Tasks scheduled by those tasks also run if they fall due within the interval.
+     * Tasks run without the scheduler's lock held, so a task may take locks that
+     * other threads hold while scheduling without risk of deadlock. Calls to
+     * advance are serialised.
+     *
+     * @param amount the amount of time to advance
+     * @param unit   the unit of the amount
+     * @return the number of tasks run
+     */
+    public int advance(long amount, TimeUnit unit) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Cannot move time backwards.");
+        }
+        synchronized (advanceLock) {
+            long target = nowNanos + unit.toNanos(amount);
+            int ran = 0;
+            while (true) {
+                Task task;
+                synchronized (this) {
+                    if (tasks.isEmpty() || tasks.peek().deadlineNanos > target) break;
+                    task = tasks.poll();
+                    task.done = true;
+                    nowNanos = task.deadlineNanos;
+                }
+                task.action.run();
+                ran++;
+            }
+            synchronized (this) {
+                nowNanos = target;
+            }
+            return ran;
+        }
+    }
+
+    /**
+     * Returns the number of tasks waiting to run.
+     */
+    public synchronized int getPendingCount() {
+        return tasks.size();
+    }
+
+    /**
+     * Returns the current virtual time.
+     */
+    public Instant now() {
+        return start.plusNanos(nowNanos);
+    }
+
+    /**
+     * Returns a clock that reads the current virtual time.
+     */
+    public Clock getClock() {
+        return new VirtualClock(zone);
+    }
+
+    /**
+     * A clock reading this scheduler's virtual time in a given time zone.
+     */
+    private final class VirtualClock extends Clock {
+        private final ZoneId zone;
+
+        VirtualClock(ZoneId zone) {
+            this.zone = zone;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return zone;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return zone.equals(this.zone) ? this : new VirtualClock(zone);
+        }
+
+        @Override
+        public Instant instant() {
+            return now();
+        }
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        shutdown = true;
+        tasks.clear();
+    }
+}
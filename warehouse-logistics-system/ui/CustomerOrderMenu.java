@@ -48,6 +48,7 @@ public class CustomerOrderMenu {
             System.out.println("\n1. Display Inventory");
             System.out.println("2. Add To Order");
             System.out.println("3. Complete Order");
+            System.out.println("4. Search Inventory");
             System.out.println("0. Cancel Order");
             System.out.println("Current Order: " + saleProducts);
             System.out.print("Select an option: ");
@@ -63,6 +64,13 @@ public class CustomerOrderMenu {
                 }
                 case 2 -> addItems(saleProducts);
                 case 3 -> order = true;
+                case 4 -> {
+                    System.out.print("Enter search text: ");
+                    String query = ImportUtils.getUserChoiceStr(scanner);
+                    for (InventoryItem item : inventoryService.searchItems(query, 0, 10)) {
+                        System.out.println(item);
+                    }
+                }
                 case 0 -> {
                     System.out.println("Order canceled");
                     return;
@@ -1,5 +1,6 @@
 package ui;
 
+import java.util.List;
 import java.util.Scanner;
 
 import models.InventoryItem;
@@ -10,6 +11,8 @@ import services.InventoryService;
  * Provides options to view inventory, change prices, and add new items.
  */
 public class InventoryMenu {
+    private static final int SEARCH_PAGE_SIZE = 10;
+
     private final Scanner scanner;
     private InventoryService inventoryService;
 
@@ -51,7 +54,8 @@ public class InventoryMenu {
     }
 
     /**
-     * Displays the inventory viewing submenu, allowing the user to see all items or search by ID.
+     * Displays the inventory viewing submenu, allowing the user to see all items,
+     * search by ID, or search by name and description.
      */
     private void viewInventory() {
         boolean back = false;
@@ -60,6 +64,7 @@ public class InventoryMenu {
             System.out.println("\n-- View Inventory --");
             System.out.println("1. View All Items");
             System.out.println("2. Search by Item ID");
+            System.out.println("3. Search by Name or Description");
             System.out.println("0. Back");
             System.out.print("Select an option: ");
 
@@ -78,12 +83,41 @@ public class InventoryMenu {
                     System.out.println("Searching inventory for item ID: " + id);
                     System.out.print(inventoryService.findById(id) + "\n\n");
                 }
+                case 3 -> searchItems();
                 case 0 -> back = true;
                 default -> System.out.println("Invalid option. Try again.");
             }
         }
     }
 
+    /**
+     * Prompts for search text and displays matching items one page at a time.
+     */
+    private void searchItems() {
+        System.out.print("Enter search text: ");
+        String query = ImportUtils.getUserChoiceStr(scanner);
+
+        int page = 0;
+        while (true) {
+            List<InventoryItem> results = inventoryService.searchItems(query, page, SEARCH_PAGE_SIZE);
+            if (results.isEmpty()) {
+                System.out.println(page == 0 ? "No matching items found." : "No more results.");
+                return;
+            }
+
+            System.out.println("Results page " + (page + 1) + ":");
+            for (InventoryItem item : results) {
+                System.out.println(item);
+            }
+
+            if (results.size() < SEARCH_PAGE_SIZE) return;
+
+            System.out.print("Show next page? (y/n): ");
+            if (!ImportUtils.getUserChoiceStr(scanner).equals("y")) return;
+            page++;
+        }
+    }
+
     /**
      * Prompts the user to select an item by ID and update its price.
      */
@@ -140,7 +174,7 @@ public class InventoryMenu {
             return;
         }
 
-        int nextId = inventoryService.getNextAvailableId();
+        int nextId = inventoryService.allocateId();
         inventoryService.addInventoryItem(nextId, name, description, unitPrice, 0);
 
         System.out.println("Item added with ID: " + nextId);
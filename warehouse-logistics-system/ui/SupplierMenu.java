@@ -1,6 +1,7 @@
 package ui;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 
@@ -8,6 +9,8 @@ import models.InventoryItem;
 import models.Order;
 import models.Supplier;
 import models.SupplierItem;
+import models.SupplierOrderRecord;
+import models.SupplierSpendSummary;
 import services.SupplierService;
 import services.OrderService;
 import services.InventoryService;
@@ -16,6 +19,9 @@ import services.InventoryService;
  * Menu UI class responsible for supplier and purchase order management.
  */
 public class SupplierMenu {
+    private static final int CHEAPEST_SUPPLIERS_SHOWN = 5;
+    private static final int HISTORY_PAGE_SIZE = 10;
+
     private final Scanner scanner;
     private SupplierService supplierService;
     private OrderService orderService;
@@ -306,8 +312,15 @@ public class SupplierMenu {
         System.out.println("\nCreate Purchase Order ");
         Map<String, Integer> saleProducts = new HashMap<>();
 
-        for (Supplier supplier : supplierService.getAllSuppliers()) {
-            System.out.println(supplier);
+        // Show who sells an item most cheaply, or fall back to the full supplier list
+        System.out.print("Enter item ID to compare suppliers (or -1 to list all suppliers): ");
+        int itemId = ImportUtils.getUserChoice(scanner);
+        if (itemId == -1) {
+            for (Supplier supplier : supplierService.getAllSuppliers()) {
+                System.out.println(supplier);
+            }
+        } else {
+            showCheapestSuppliers(itemId);
         }
 
         // Prompt the user to enter a supplier ID or -1 to stop adding
@@ -360,6 +373,26 @@ public class SupplierMenu {
         }
     }
 
+    /**
+     * Displays the cheapest suppliers of an item, read from the supplier price index.
+     *
+     * @param itemId The inventory item ID.
+     */
+    private void showCheapestSuppliers(int itemId) {
+        List<Supplier> cheapest = supplierService.getCheapestSuppliers(itemId, CHEAPEST_SUPPLIERS_SHOWN);
+        if (cheapest.isEmpty()) {
+            System.out.println("No supplier offers item " + itemId + ".");
+            return;
+        }
+        System.out.println("Cheapest suppliers of item " + itemId + ":");
+        for (Supplier supplier : cheapest) {
+            SupplierItem item = supplier.getItemById(itemId);
+            if (item != null) {
+                System.out.printf("[%d] %s - £%.2f%n", supplier.getId(), supplier.getName(), item.getPrice());
+            }
+        }
+    }
+
     /**
      * Adds items to a sale by selecting suppliers and items. 
      * The user can choose a supplier, view their available items, 
@@ -409,14 +442,18 @@ public class SupplierMenu {
     }
 
     /**
-     * Displays all orders and allows the user to track the status of each one.
-     * This method iterates over all orders and prints each one to the console.
+     * Displays every order, purchases and sales alike, grouped by its current
+     * status, so the user can track orders from processing through to delivery.
+     * Each group is read from the order status index rather than scanning every order.
      */
     private void trackOrderStatus() {
         System.out.println("\nTrack Order Status");
-        // Display all orders
-        for (Order order : orderService.getAllOrders()) {
-            System.out.println(order);
+        for (Order.Status status : Order.Status.values()) {
+            List<Order> orders = orderService.getOrders(null, status, null, null);
+            System.out.println("\n" + status + " (" + orders.size() + ")");
+            for (Order order : orders) {
+                System.out.println(order);
+            }
         }
     }
 
@@ -431,7 +468,35 @@ public class SupplierMenu {
         System.out.print("Enter supplier ID: ");
         int id = ImportUtils.getUserChoice(scanner);
         System.out.println("Searching for supplier ID: " + id);
-        // Display the supplier's order history
-        System.out.print(supplierService.getOrderHistoryForSupplier(id) + "\n\n");
+
+        SupplierSpendSummary summary = supplierService.getSpendSummary(id);
+        if (summary == null) {
+            System.out.println("Supplier not found.\n");
+            return;
+        }
+        System.out.println(summary);
+
+        // Display the supplier's order history one page at a time
+        int page = 0;
+        while (true) {
+            List<SupplierOrderRecord> records = supplierService.getOrderHistoryPage(id, page, HISTORY_PAGE_SIZE);
+            if (records.isEmpty()) {
+                System.out.println(page == 0 ? "No orders recorded.\n" : "No more orders.\n");
+                return;
+            }
+
+            for (SupplierOrderRecord record : records) {
+                System.out.println(record);
+            }
+
+            if (records.size() < HISTORY_PAGE_SIZE) {
+                System.out.println();
+                return;
+            }
+
+            System.out.print("Show next page? (y/n): ");
+            if (!ImportUtils.getUserChoiceStr(scanner).equals("y")) return;
+            page++;
+        }
     }
 }